@@ -0,0 +1,83 @@
+package io.github.johneliud.api_gateway.benchmark;
+
+import io.github.johneliud.api_gateway.config.RevocationList;
+import io.github.johneliud.api_gateway.filter.AuthenticationFilter;
+import io.github.johneliud.api_gateway.util.JwtUtil;
+import io.github.johneliud.api_gateway.util.VerifiedTokenCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One pass through AuthenticationFilter with a cached token: header lookup, cache hit and the request
+ * mutation that adds X-User-Id and X-User-Role. The exchange is built per invocation, as it is per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationFilterBenchmark {
+
+    private static final String SECRET = "NqnGzaDEIZhGXWnbnWDHViZyKhinshBQ";
+
+    private GatewayFilter filter;
+    private String bearer;
+
+    // Stands in for the rest of the route; the upstream call is not part of this measurement
+    private final GatewayFilterChain chain = exchange -> Mono.empty();
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, "");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(jwtUtil, meterRegistry, 10_000, 300);
+        RevocationList revocations = new RevocationList("", Duration.ofMillis(500), Duration.ofHours(24),
+                Duration.ofMinutes(5), meterRegistry);
+        filter = new AuthenticationFilter(tokenCache, revocations, meterRegistry).apply(new AuthenticationFilter.Config());
+        bearer = "Bearer " + Jwts.builder()
+                .subject("user123")
+                .claim("role", "CLIENT")
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    @Benchmark
+    public ServerWebExchange authenticatedRequest() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/cart")
+                .header(HttpHeaders.AUTHORIZATION, bearer));
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public ServerWebExchange missingAuthorization() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/cart"));
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+}
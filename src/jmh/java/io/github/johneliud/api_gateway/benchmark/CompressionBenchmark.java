@@ -0,0 +1,113 @@
+package io.github.johneliud.api_gateway.benchmark;
+
+import io.github.johneliud.api_gateway.filter.CompressionFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of gzipping a product-list JSON body per compression level, against passing it through
+ * unencoded. The bytes each level puts on the wire are printed at the end of every trial, so time per
+ * operation can be weighed against the bandwidth it saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final int CHUNK_BYTES = 8 * 1024;
+
+    @Param({"1", "5", "9"})
+    private int level;
+
+    @Param({"4096", "65536", "1048576"})
+    private int bodySize;
+
+    private GatewayFilter filter;
+    private byte[] body;
+    private long wireBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filter = new CompressionFilter(level, 16, new SimpleMeterRegistry())
+                .apply(new CompressionFilter.Config().setMinBytes(1024));
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < bodySize; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"id\":\"").append(Integer.toHexString(i * 7919)).append("\",\"name\":\"Product ").append(i)
+                    .append("\",\"description\":\"Solid oak, hand finished\",\"price\":").append(5 + i % 95)
+                    .append(".99,\"quantity\":").append(i % 13).append(",\"userId\":\"seller-").append(i % 17).append("\"}");
+        }
+        body = Arrays.copyOf(json.append(']').toString().getBytes(StandardCharsets.UTF_8), bodySize);
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.printf("level=%d body=%d wire=%d (%.1f%%)%n", level, bodySize, wireBytes,
+                100.0 * wireBytes / bodySize);
+    }
+
+    private final GatewayFilterChain upstream = exchange -> {
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return exchange.getResponse().writeWith(Flux.range(0, (body.length + CHUNK_BYTES - 1) / CHUNK_BYTES)
+                .map(i -> exchange.getResponse().bufferFactory()
+                        .wrap(ByteBuffer.wrap(body, i * CHUNK_BYTES, Math.min(CHUNK_BYTES, body.length - i * CHUNK_BYTES)))));
+    };
+
+    private long send(String acceptEncoding) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/products");
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, upstream).block();
+        return exchange.getResponse().getBody()
+                .map(buffer -> {
+                    int length = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return (long) length;
+                })
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    @Benchmark
+    public long gzip() {
+        wireBytes = send("gzip, deflate, br");
+        return wireBytes;
+    }
+
+    @Benchmark
+    public long identity() {
+        return send(null);
+    }
+}
@@ -0,0 +1,121 @@
+package io.github.johneliud.api_gateway.benchmark;
+
+import io.github.johneliud.api_gateway.ApiGatewayApplication;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests through the real gateway (all filters, routing and the upstream connection pool) to an
+ * in-process stub backend that answers every path with a small JSON body. Throughput and the latency
+ * distribution (p50/p90/p99 from SampleTime) are both reported.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class GatewayEndToEndBenchmark {
+
+    private static final String SECRET = "NqnGzaDEIZhGXWnbnWDHViZyKhinshBQ";
+    private static final byte[] STUB_BODY = "{\"id\":\"p1\",\"name\":\"Lamp\",\"price\":12.5}".getBytes(StandardCharsets.UTF_8);
+
+    private DisposableServer backend;
+    private ConfigurableApplicationContext gateway;
+    private HttpClient client;
+    private String bearer;
+
+    @Setup
+    public void setUp() {
+        backend = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> response
+                        .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                        .sendByteArray(Mono.just(STUB_BODY)))
+                .bindNow();
+        String backendUrl = "http://localhost:" + backend.port();
+        gateway = new SpringApplication(ApiGatewayApplication.class).run(
+                "--server.port=0",
+                "--user.service.url=" + backendUrl,
+                "--product.service.url=" + backendUrl,
+                "--media.service.url=" + backendUrl,
+                "--order.service.url=" + backendUrl,
+                "--jwt.secret=" + SECRET,
+                "--jwt.expiration=86400000",
+                "--rate.limit.login.capacity=5",
+                "--rate.limit.login.refill.tokens=5",
+                "--rate.limit.login.refill.minutes=15",
+                "--cors.allowed-origins=http://localhost:4200",
+                "--downstream.concurrency.initial-limit=200",
+                "--downstream.concurrency.max-limit=1000",
+                "--logging.level.root=WARN");
+        int port = Integer.parseInt(gateway.getEnvironment().getRequiredProperty("local.server.port"));
+        client = HttpClient.create().baseUrl("http://localhost:" + port);
+        bearer = "Bearer " + Jwts.builder()
+                .subject("user123")
+                .claim("role", "CLIENT")
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    @TearDown
+    public void tearDown() {
+        gateway.close();
+        backend.disposeNow();
+    }
+
+    // no-cache skips the response cache so every request is proxied
+    @Benchmark
+    public int publicProxiedGet() {
+        return get("/api/products/p1", HttpHeaders.CACHE_CONTROL, "no-cache");
+    }
+
+    @Benchmark
+    public int publicCachedGet() {
+        return get("/api/products/p1", HttpHeaders.ACCEPT, "application/json");
+    }
+
+    @Benchmark
+    public int authenticatedGet() {
+        return get("/api/cart", HttpHeaders.AUTHORIZATION, bearer);
+    }
+
+    @Benchmark
+    public int rejectedUnauthenticated() {
+        return get("/api/cart", HttpHeaders.ACCEPT, "application/json");
+    }
+
+    private int get(String path, String header, String value) {
+        Integer status = client.headers(headers -> headers.set(header, value))
+                .get()
+                .uri(path)
+                .responseSingle((response, body) -> body.asByteArray().thenReturn(response.status().code()))
+                .block();
+        return status != null ? status : -1;
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.johneliud.api_gateway.benchmark;
+
+import io.github.johneliud.api_gateway.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "NqnGzaDEIZhGXWnbnWDHViZyKhinshBQ";
+    private static final String ROTATED_SECRET = "cXBmZ3hwcmR2b3N0ZWtqbXh3YXpuYmtl";
+
+    private JwtUtil jwtUtil;
+    private String token;
+    private String keyIdToken;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, "k1:" + ROTATED_SECRET);
+        Date expiry = new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1));
+        token = Jwts.builder()
+                .subject("user123")
+                .claim("role", "CLIENT")
+                .expiration(expiry)
+                .signWith(key(SECRET))
+                .compact();
+        keyIdToken = Jwts.builder()
+                .header().keyId("k1").and()
+                .subject("user123")
+                .claim("role", "CLIENT")
+                .expiration(expiry)
+                .signWith(key(ROTATED_SECRET))
+                .compact();
+    }
+
+    private static SecretKey key(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Mirrors the previous JwtUtil, which derived the key and built a parser on every call
+    @Benchmark
+    public Claims perRequestParser() {
+        return Jwts.parser()
+                .verifyWith(key(SECRET))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public Claims prebuiltParser() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Claims prebuiltParserWithKeyId() {
+        return jwtUtil.validateToken(keyIdToken);
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.johneliud.api_gateway.benchmark;
+
+import io.github.johneliud.api_gateway.config.LocalRateLimitBackend;
+import io.github.johneliud.api_gateway.config.RateLimitService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login-limit consumption from several threads at once. With one key every thread contends on the same
+ * bucket; with many keys the cost is dominated by the bounded bucket store. Override the thread count
+ * with {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RateLimitServiceBenchmark {
+
+    @Param({"1", "1000", "1000000"})
+    private int keys;
+
+    private RateLimitService rateLimitService;
+    private String[] keyNames;
+
+    @Setup
+    public void setUp() {
+        rateLimitService = new RateLimitService(
+                new LocalRateLimitBackend(100_000, new SimpleMeterRegistry()), 5, 5, 15);
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "user-login:ip:10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+        }
+    }
+
+    @Benchmark
+    public boolean tryConsume() {
+        return rateLimitService.tryConsume(keyNames[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+}
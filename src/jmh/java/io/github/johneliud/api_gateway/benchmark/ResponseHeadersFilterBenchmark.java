@@ -0,0 +1,133 @@
+package io.github.johneliud.api_gateway.benchmark;
+
+import io.github.johneliud.api_gateway.filter.ResponseHeadersFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-response cost of the security and CORS headers. The {@code separate*} benchmarks run the setup this
+ * filter replaced, Spring's {@link CorsWebFilter} followed by a filter setting each security header on
+ * commit, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseHeadersFilterBenchmark {
+
+    private static final String ORIGIN = "http://localhost:4200";
+
+    private final ResponseHeadersFilter filter = new ResponseHeadersFilter(ORIGIN, Duration.ofHours(2));
+
+    private final CorsWebFilter corsWebFilter = corsWebFilter();
+
+    private final WebFilter securityHeaders = (exchange, chain) -> {
+        exchange.getResponse().beforeCommit(() -> {
+            HttpHeaders headers = exchange.getResponse().getHeaders();
+            headers.set("X-Content-Type-Options", "nosniff");
+            headers.set("X-Frame-Options", "DENY");
+            headers.set("X-XSS-Protection", "1; mode=block");
+            headers.set("Content-Security-Policy", "default-src 'self'");
+            return Mono.empty();
+        });
+        return chain.filter(exchange);
+    };
+
+    // Committing the response runs the beforeCommit action that writes the headers
+    private final WebFilterChain chain = exchange -> exchange.getResponse().setComplete();
+
+    private final WebFilterChain separateChain = exchange -> securityHeaders.filter(exchange, chain);
+
+    private static CorsWebFilter corsWebFilter() {
+        CorsConfiguration config = new CorsConfiguration();
+        config.setAllowedOrigins(List.of(ORIGIN));
+        config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        config.setAllowedHeaders(List.of("*"));
+        config.setAllowCredentials(true);
+        config.setExposedHeaders(List.of("Authorization"));
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", config);
+        return new CorsWebFilter(source);
+    }
+
+    private static MockServerWebExchange sameOrigin() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/products"));
+    }
+
+    private static MockServerWebExchange crossOrigin() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/products")
+                .header(HttpHeaders.ORIGIN, ORIGIN));
+    }
+
+    private static MockServerWebExchange preflight() {
+        return MockServerWebExchange.from(MockServerHttpRequest.options("/api/products")
+                .header(HttpHeaders.ORIGIN, ORIGIN)
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, HttpMethod.POST.name())
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "authorization,content-type"));
+    }
+
+    @Benchmark
+    public MockServerWebExchange sameOriginResponse() {
+        MockServerWebExchange exchange = sameOrigin();
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange crossOriginResponse() {
+        MockServerWebExchange exchange = crossOrigin();
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange preflightResponse() {
+        MockServerWebExchange exchange = preflight();
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange separateSameOriginResponse() {
+        MockServerWebExchange exchange = sameOrigin();
+        corsWebFilter.filter(exchange, separateChain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange separateCrossOriginResponse() {
+        MockServerWebExchange exchange = crossOrigin();
+        corsWebFilter.filter(exchange, separateChain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange separatePreflightResponse() {
+        MockServerWebExchange exchange = preflight();
+        corsWebFilter.filter(exchange, separateChain).block();
+        return exchange;
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.johneliud.api_gateway.benchmark;
+
+import io.github.johneliud.api_gateway.util.RevocationIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request revocation check against indexes of up to millions of revoked token ids. Lookups cycle
+ * through 4096 ids so they are not served from one cached line. {@code hashSet*} runs the same lookups
+ * against a {@code HashSet<String>} of the ids, the straightforward alternative.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RevocationIndexBenchmark {
+
+    private static final int LOOKUPS = 4096;
+
+    @Param({"1000", "1000000", "4000000"})
+    public int entries;
+
+    private RevocationIndex index;
+    private Set<String> hashSet;
+    private String[] revoked;
+    private String[] live;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<String> tokenIds = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            tokenIds.add(UUID.randomUUID().toString());
+        }
+        index = new RevocationIndex(tokenIds, Map.of());
+        hashSet = new HashSet<>(tokenIds);
+        revoked = new String[LOOKUPS];
+        live = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            revoked[i] = tokenIds.get((int) ((long) i * entries / LOOKUPS));
+            live[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @Benchmark
+    public boolean liveToken() {
+        return index.containsToken(live[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public boolean revokedToken() {
+        return index.containsToken(revoked[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public boolean hashSetLiveToken() {
+        return hashSet.contains(live[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public boolean hashSetRevokedToken() {
+        return hashSet.contains(revoked[next++ & (LOOKUPS - 1)]);
+    }
+}
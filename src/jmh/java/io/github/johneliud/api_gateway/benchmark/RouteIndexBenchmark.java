@@ -0,0 +1,92 @@
+package io.github.johneliud.api_gateway.benchmark;
+
+import io.github.johneliud.api_gateway.config.RouteIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route lookup cost as the table grows. Each service contributes the same shape as RouteConfig (by-id GET,
+ * list GET, authenticated catch-all); the looked-up path belongs to the last service, the worst case for
+ * the linear scan the gateway does without the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteIndexBenchmark {
+
+    @Param({"12", "120", "1200"})
+    private int routes;
+
+    private RouteIndex index;
+    private List<PathPattern> patterns;
+    private List<HttpMethod> methods;
+    private String path;
+    private PathContainer pathContainer;
+
+    @Setup
+    public void setUp() {
+        List<Route> table = new ArrayList<>();
+        patterns = new ArrayList<>();
+        methods = new ArrayList<>();
+        for (int service = 0; service < routes / 3; service++) {
+            add(table, "svc" + service + "-by-id", "/api/svc" + service + "/{id}", HttpMethod.GET);
+            add(table, "svc" + service + "-list", "/api/svc" + service, HttpMethod.GET);
+            add(table, "svc" + service + "-auth", "/api/svc" + service + "/**", null);
+        }
+        index = RouteIndex.compile(table);
+        path = "/api/svc" + (routes / 3 - 1) + "/items";
+        pathContainer = PathContainer.parsePath(path);
+    }
+
+    private void add(List<Route> table, String id, String pattern, HttpMethod method) {
+        Route.AsyncBuilder builder = Route.async()
+                .id(id)
+                .uri("http://localhost")
+                .predicate(exchange -> true)
+                .metadata(RouteIndex.PATH_METADATA, pattern);
+        if (method != null) {
+            builder.metadata(RouteIndex.METHOD_METADATA, method.name());
+        }
+        table.add(builder.build());
+        patterns.add(PathPatternParser.defaultInstance.parse(pattern));
+        methods.add(method);
+    }
+
+    @Benchmark
+    public int indexedLookup() {
+        return index.match(path, HttpMethod.GET);
+    }
+
+    // What the gateway's predicate walk costs for path + method predicates
+    @Benchmark
+    public int linearScan() {
+        for (int i = 0; i < patterns.size(); i++) {
+            HttpMethod method = methods.get(i);
+            if (patterns.get(i).matches(pathContainer) && (method == null || method == HttpMethod.GET)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
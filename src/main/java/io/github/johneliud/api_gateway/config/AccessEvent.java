@@ -0,0 +1,15 @@
+package io.github.johneliud.api_gateway.config;
+
+/**
+ * One finished request as written to the access log. {@code rateLimitKey} is null when the route has no
+ * rate limit; {@code authFailure} is null unless authentication rejected the request.
+ */
+public record AccessEvent(long timestampMillis, String routeId, String method, String path, int status,
+                          long latencyNanos, String client, String principal, String rateLimitKey,
+                          boolean rateLimited, String authFailure) {
+
+    // Failures and denials are always kept; only these are sampled when the log falls behind
+    boolean isRoutine() {
+        return status < 400 && !rateLimited && authFailure == null;
+    }
+}
@@ -0,0 +1,295 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access and audit log, one JSON object per line, written off the request path. Request
+ * threads only put an {@link AccessEvent} on a lock-free ring; a single writer thread drains it in
+ * batches and appends each batch to a size-rotated file with one write.
+ *
+ * <p>When the ring is more than three quarters full, routine (2xx/3xx, allowed) events are kept 1 in
+ * {@code sampleWhenBusy}; failures and denials are always offered. When the ring is full the event is
+ * dropped. Both are counted, and the writer notes each gap with a {@code "type":"dropped"} line.
+ *
+ * <p>Rate-limit denials are logged in full only the first time a key is denied in each
+ * {@code rateLimitSummaryInterval}; repeats are counted and written as one {@code "type":"rate_limit_summary"}
+ * line per key at the end of the interval, so a flood of 429s costs a counter increment each.
+ */
+@Component
+public class AccessLog implements InitializingBean, DisposableBean {
+
+    public static final String PRINCIPAL_ATTR = AccessLog.class.getName() + ".principal";
+    public static final String AUTH_FAILURE_ATTR = AccessLog.class.getName() + ".authFailure";
+    public static final String RATE_LIMIT_KEY_ATTR = AccessLog.class.getName() + ".rateLimitKey";
+    public static final String RATE_LIMITED_ATTR = AccessLog.class.getName() + ".rateLimited";
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+
+    // Beyond this many distinct denied keys per interval, repeats are only counted under "*"
+    private static final int MAX_TRACKED_KEYS = 10_000;
+
+    private final boolean enabled;
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxHistory;
+    private final AccessLogRing<AccessEvent> ring;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int sampleWhenBusy;
+    private final long summaryIntervalNanos;
+
+    private final AtomicReference<Map<String, LongAdder>> deniedKeys = new AtomicReference<>(new ConcurrentHashMap<>());
+    private final LongAdder untrackedDenials = new LongAdder();
+    private final LongAdder droppedSinceLastWrite = new LongAdder();
+
+    private final Counter droppedFull;
+    private final Counter droppedSampled;
+    private final Counter suppressed;
+    private final Counter writeErrors;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AccessLog(@Value("${access-log.enabled:true}") boolean enabled,
+                     @Value("${access-log.file:logs/access.log}") Path file,
+                     @Value("${access-log.max-file-size:100MB}") DataSize maxFileSize,
+                     @Value("${access-log.max-history:10}") int maxHistory,
+                     @Value("${access-log.buffer-size:65536}") int bufferSize,
+                     @Value("${access-log.batch-size:512}") int batchSize,
+                     @Value("${access-log.flush-interval:200ms}") Duration flushInterval,
+                     @Value("${access-log.sample-when-busy:10}") int sampleWhenBusy,
+                     @Value("${access-log.rate-limit-summary-interval:10s}") Duration rateLimitSummaryInterval,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.file = file;
+        this.maxFileBytes = maxFileSize.toBytes();
+        this.maxHistory = maxHistory;
+        this.ring = new AccessLogRing<>(bufferSize);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.sampleWhenBusy = Math.max(1, sampleWhenBusy);
+        this.summaryIntervalNanos = rateLimitSummaryInterval.toNanos();
+        this.droppedFull = Counter.builder("gateway.accesslog.dropped")
+                .description("Access log events not written because the writer fell behind")
+                .tag("reason", "full")
+                .register(meterRegistry);
+        this.droppedSampled = Counter.builder("gateway.accesslog.dropped")
+                .description("Access log events not written because the writer fell behind")
+                .tag("reason", "sampled")
+                .register(meterRegistry);
+        this.suppressed = Counter.builder("gateway.accesslog.suppressed")
+                .description("Repeated rate-limit denials folded into a per-key summary line")
+                .register(meterRegistry);
+        this.writeErrors = Counter.builder("gateway.accesslog.write.errors")
+                .register(meterRegistry);
+        Gauge.builder("gateway.accesslog.backlog", ring, AccessLogRing::size)
+                .description("Events waiting for the access log writer")
+                .register(meterRegistry);
+    }
+
+    /** Never blocks; returns false if the event was sampled out, dropped or folded into a summary. */
+    public boolean record(AccessEvent event) {
+        if (!enabled) {
+            return false;
+        }
+        if (event.rateLimited() && !firstDenial(event.rateLimitKey())) {
+            suppressed.increment();
+            return false;
+        }
+        if (event.isRoutine() && ring.size() > ring.capacity() / 4 * 3
+                && ThreadLocalRandom.current().nextInt(sampleWhenBusy) != 0) {
+            droppedSampled.increment();
+            droppedSinceLastWrite.increment();
+            return false;
+        }
+        if (!ring.offer(event)) {
+            droppedFull.increment();
+            droppedSinceLastWrite.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean firstDenial(String key) {
+        Map<String, LongAdder> window = deniedKeys.get();
+        LongAdder repeats = window.get(key);
+        if (repeats == null) {
+            if (window.size() >= MAX_TRACKED_KEYS) {
+                untrackedDenials.increment();
+                return false;
+            }
+            repeats = window.putIfAbsent(key, new LongAdder());
+            if (repeats == null) {
+                return true;
+            }
+        }
+        repeats.increment();
+        return false;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform().daemon().name("access-log-writer").start(this::writeLoop);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(Duration.ofSeconds(5));
+        }
+    }
+
+    private void writeLoop() {
+        List<AccessEvent> batch = new ArrayList<>(batchSize);
+        StringBuilder lines = new StringBuilder(batchSize * 256);
+        long nextSummary = System.nanoTime() + summaryIntervalNanos;
+        try (RollingFile out = new RollingFile(file, maxFileBytes, maxHistory)) {
+            while (running) {
+                long now = System.nanoTime();
+                boolean summarise = now - nextSummary >= 0;
+                if (summarise) {
+                    nextSummary = now + summaryIntervalNanos;
+                }
+                // A short batch means the ring is drained; wait for more rather than spin
+                if (writeBatch(out, batch, lines, summarise) < batchSize) {
+                    LockSupport.parkNanos(flushIntervalNanos);
+                }
+            }
+            // Shutdown: write what was recorded before it, then close the rate-limit window
+            while (ring.size() > 0) {
+                writeBatch(out, batch, lines, false);
+            }
+            writeBatch(out, batch, lines, true);
+        } catch (IOException e) {
+            log.error("Access log stopped, cannot open {}: {}", file, e.getMessage());
+        }
+    }
+
+    private int writeBatch(RollingFile out, List<AccessEvent> batch, StringBuilder lines, boolean summarise) {
+        int drained = ring.drain(batch::add, batchSize);
+        long dropped = droppedSinceLastWrite.sumThenReset();
+        if (dropped > 0) {
+            appendDropped(lines, dropped);
+        }
+        for (AccessEvent event : batch) {
+            appendEvent(lines, event);
+        }
+        if (summarise) {
+            appendSummaries(lines);
+        }
+        if (!lines.isEmpty()) {
+            write(out, lines);
+        }
+        batch.clear();
+        lines.setLength(0);
+        return drained;
+    }
+
+    private void write(RollingFile out, StringBuilder lines) {
+        try {
+            out.write(ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            writeErrors.increment();
+        }
+    }
+
+    private void appendEvent(StringBuilder line, AccessEvent event) {
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(event.timestampMillis()))
+                .append("\",\"type\":\"access\"");
+        field(line, "route", event.routeId());
+        field(line, "method", event.method());
+        field(line, "path", event.path());
+        line.append(",\"status\":").append(event.status())
+                .append(",\"latency_ms\":").append(event.latencyNanos() / 1_000_000.0);
+        field(line, "client", event.client());
+        field(line, "principal", event.principal());
+        if (event.rateLimitKey() != null) {
+            field(line, "rate_limit", event.rateLimited() ? "denied" : "allowed");
+            field(line, "rate_limit_key", event.rateLimitKey());
+        }
+        field(line, "auth_failure", event.authFailure());
+        line.append("}\n");
+    }
+
+    private void appendDropped(StringBuilder line, long dropped) {
+        line.append("{\"ts\":\"").append(Instant.now()).append("\",\"type\":\"dropped\",\"count\":")
+                .append(dropped).append("}\n");
+    }
+
+    private void appendSummaries(StringBuilder line) {
+        Map<String, LongAdder> window = deniedKeys.getAndSet(new ConcurrentHashMap<>());
+        Instant now = Instant.now();
+        long windowMillis = summaryIntervalNanos / 1_000_000;
+        window.forEach((key, repeats) -> {
+            long count = repeats.sum();
+            if (count > 0) {
+                appendSummary(line, now, key, count, windowMillis);
+            }
+        });
+        long untracked = untrackedDenials.sumThenReset();
+        if (untracked > 0) {
+            appendSummary(line, now, "*", untracked, windowMillis);
+        }
+    }
+
+    private static void appendSummary(StringBuilder line, Instant now, String key, long count, long windowMillis) {
+        line.append("{\"ts\":\"").append(now).append("\",\"type\":\"rate_limit_summary\"");
+        field(line, "rate_limit_key", key);
+        line.append(",\"suppressed\":").append(count).append(",\"window_ms\":").append(windowMillis).append("}\n");
+    }
+
+    private static void field(StringBuilder line, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
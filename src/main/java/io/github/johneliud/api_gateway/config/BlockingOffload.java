@@ -0,0 +1,121 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoop;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.Connection;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs blocking sections of a filter (key lookups, blocking audit sinks, JWKS fetches) on virtual threads
+ * so they never hold a Netty event loop. The rest of the filter resumes on the event loop that owns the
+ * request's connection, so code after the section runs on the same thread it would have without the
+ * offload. At most {@code gateway.blocking.max-concurrency} sections run at once; further ones wait on
+ * their virtual thread, never on the event loop.
+ *
+ * <pre>{@code
+ * return blocking.call(exchange, "key-lookup", () -> keyStore.load(keyId))
+ *         .flatMap(key -> chain.filter(withKey(exchange, key)));
+ * }</pre>
+ */
+@Component
+public class BlockingOffload implements DisposableBean {
+
+    private final ExecutorService executor;
+    private final Scheduler scheduler;
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final Map<EventLoop, Scheduler> eventLoops = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Function<String, Timer> timerFactory = this::timer;
+    private final MeterRegistry meterRegistry;
+
+    public BlockingOffload(@Value("${gateway.blocking.max-concurrency:256}") int maxConcurrency,
+                           MeterRegistry meterRegistry) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gateway-blocking-", 0).factory());
+        this.scheduler = Schedulers.fromExecutorService(executor, "gateway-blocking");
+        this.permits = new Semaphore(maxConcurrency);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("gateway.blocking.active", active, AtomicInteger::get)
+                .description("Blocking filter sections currently running on virtual threads")
+                .register(meterRegistry);
+        Gauge.builder("gateway.blocking.waiting", permits, Semaphore::getQueueLength)
+                .description("Blocking filter sections waiting for a free slot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code work} on a virtual thread and emits its result, or completes empty for {@code null}, on
+     * the request's event loop. Cancelling the returned Mono interrupts the virtual thread.
+     */
+    public <T> Mono<T> call(ServerWebExchange exchange, String section, Callable<T> work) {
+        Timer cached = timers.get(section);
+        Timer timer = cached != null ? cached : timers.computeIfAbsent(section, timerFactory);
+        return Mono.fromCallable(() -> {
+                    long start = System.nanoTime();
+                    permits.acquire();
+                    active.incrementAndGet();
+                    try {
+                        return work.call();
+                    } finally {
+                        active.decrementAndGet();
+                        permits.release();
+                        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .subscribeOn(scheduler)
+                .publishOn(resumeScheduler(exchange));
+    }
+
+    private Timer timer(String section) {
+        return Timer.builder("gateway.blocking.time")
+                .description("Time blocking filter sections spend on a virtual thread, including waiting for a slot")
+                .tag("section", section)
+                .register(meterRegistry);
+    }
+
+    public Mono<Void> run(ServerWebExchange exchange, String section, Runnable work) {
+        return call(exchange, section, () -> {
+            work.run();
+            return null;
+        }).then();
+    }
+
+    // The connection's event loop under Reactor Netty; elsewhere (tests, mock exchanges) the virtual thread
+    private Scheduler resumeScheduler(ServerWebExchange exchange) {
+        Object nativeRequest;
+        try {
+            nativeRequest = ServerHttpRequestDecorator.getNativeRequest(exchange.getRequest());
+        } catch (IllegalArgumentException e) {
+            return Schedulers.immediate();
+        }
+        if (nativeRequest instanceof Connection connection) {
+            return eventLoops.computeIfAbsent(connection.channel().eventLoop(), Schedulers::fromExecutor);
+        }
+        return Schedulers.immediate();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.johneliud.api_gateway.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.github.bucket4j.BucketConfiguration;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.function.Supplier;
+
+// B is a local Bucket or a remote proxy, sync or async
+class BucketStore<B> {
+
+    // Rough per-key footprint: Caffeine node, key string and a single-bandwidth bucket
+    static final long ESTIMATED_ENTRY_BYTES = 400;
+
+    private final Cache<String, Entry<B>> cache;
+
+    BucketStore(String name, long maxKeys, MeterRegistry meterRegistry, Ticker ticker) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfter(new IdleExpiry<B>())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        Gauge.builder("rate.limit.buckets.memory.estimate", cache, c -> c.estimatedSize() * ESTIMATED_ENTRY_BYTES)
+                .tag("cache", name)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // A bucket left idle for a full refill period is back at capacity, so dropping it is lossless.
+    // A key whose configuration changed (a reloaded route table) gets a new bucket with the new limits and expiry.
+    B get(String key, BucketConfiguration configuration, Supplier<B> factory) {
+        Entry<B> entry = cache.get(key, k -> newEntry(configuration, factory));
+        if (entry.configuration() == configuration || entry.configuration().equals(configuration)) {
+            return entry.bucket();
+        }
+        return cache.asMap().compute(key, (k, current) -> current != null && current.configuration().equals(configuration)
+                ? current
+                : newEntry(configuration, factory)).bucket();
+    }
+
+    private static <B> Entry<B> newEntry(BucketConfiguration configuration, Supplier<B> factory) {
+        return new Entry<>(factory.get(), configuration, RateLimitBackend.timeToFullRefill(configuration).toNanos());
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private record Entry<B>(B bucket, BucketConfiguration configuration, long idleNanos) {
+    }
+
+    private static class IdleExpiry<B> implements Expiry<String, Entry<B>> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry<B> entry, long currentTime) {
+            return entry.idleNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry<B> entry, long currentTime, long currentDuration) {
+            return entry.idleNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry<B> entry, long currentTime, long currentDuration) {
+            return entry.idleNanos();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.springframework.http.HttpHeaders;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A stored response. {@code encodings} holds content-coded copies of the body made on first use, so a
+ * hit that the gateway compresses is compressed once per entry rather than once per request. They are
+ * not counted in the entry's weight; a compressed copy is a fraction of the body it came from.
+ */
+public record CachedResponse(HttpHeaders headers, ByteBuffer body, long ttlNanos, Map<String, ByteBuffer> encodings) {
+
+    public CachedResponse(HttpHeaders headers, ByteBuffer body, long ttlNanos) {
+        this(headers, body, ttlNanos, new ConcurrentHashMap<>());
+    }
+
+    public String etag() {
+        return headers.getETag();
+    }
+
+    public int size() {
+        return body.remaining();
+    }
+
+    public ByteBuffer encoded(String coding, Function<ByteBuffer, byte[]> encoder) {
+        return encodings.computeIfAbsent(coding, c -> ByteBuffer.wrap(encoder.apply(body.duplicate())).asReadOnlyBuffer())
+                .duplicate();
+    }
+}
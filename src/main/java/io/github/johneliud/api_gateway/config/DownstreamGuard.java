@@ -0,0 +1,197 @@
+package io.github.johneliud.api_gateway.config;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Protection state for one backend service: a count-based circuit breaker plus an AIMD concurrency limit.
+ * The limit grows by one while latency stays near the observed baseline and the limit is in use, and is cut
+ * multiplicatively on failures or when latency exceeds {@code latencyTolerance} times the baseline, so load
+ * is shed before requests queue up in the connection pool.
+ */
+public class DownstreamGuard {
+
+    public enum Circuit { CLOSED, OPEN, HALF_OPEN }
+
+    public enum Decision { ACCEPTED, CIRCUIT_OPEN, LIMIT_EXCEEDED }
+
+    /** Told of each circuit state change, the only events worth a log line. */
+    public interface CircuitListener {
+
+        void onTransition(Circuit from, Circuit to);
+    }
+
+    // Slow upward drift lets the baseline follow a backend that legitimately got slower
+    private static final int BASELINE_DRIFT_SAMPLES = 1000;
+
+    private final Settings settings;
+    private final LongSupplier nanoClock;
+    private final CircuitListener listener;
+    private final boolean[] window;
+
+    private Circuit circuit = Circuit.CLOSED;
+    private long openedAt;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private int halfOpenCalls;
+    private int halfOpenSuccesses;
+
+    private double limit;
+    private int inFlight;
+    private long baselineRttNanos = Long.MAX_VALUE;
+
+    public DownstreamGuard(Settings settings) {
+        this(settings, System::nanoTime, (from, to) -> { });
+    }
+
+    public DownstreamGuard(Settings settings, CircuitListener listener) {
+        this(settings, System::nanoTime, listener);
+    }
+
+    DownstreamGuard(Settings settings, LongSupplier nanoClock) {
+        this(settings, nanoClock, (from, to) -> { });
+    }
+
+    DownstreamGuard(Settings settings, LongSupplier nanoClock, CircuitListener listener) {
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.listener = listener;
+        this.window = new boolean[settings.windowSize()];
+        this.limit = settings.initialLimit();
+    }
+
+    public long now() {
+        return nanoClock.getAsLong();
+    }
+
+    public synchronized Decision tryAcquire() {
+        if (circuit == Circuit.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < settings.openDuration().toNanos()) {
+                return Decision.CIRCUIT_OPEN;
+            }
+            transition(Circuit.HALF_OPEN);
+            halfOpenCalls = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (circuit == Circuit.HALF_OPEN) {
+            if (halfOpenCalls >= settings.halfOpenCalls()) {
+                return Decision.CIRCUIT_OPEN;
+            }
+            halfOpenCalls++;
+        }
+        if (inFlight >= (int) limit) {
+            if (circuit == Circuit.HALF_OPEN) {
+                halfOpenCalls--;
+            }
+            return Decision.LIMIT_EXCEEDED;
+        }
+        inFlight++;
+        return Decision.ACCEPTED;
+    }
+
+    // The call ended before an outcome was known (client went away); frees the slot without a sample
+    public synchronized void release() {
+        inFlight--;
+        if (circuit == Circuit.HALF_OPEN) {
+            halfOpenCalls = Math.max(0, halfOpenCalls - 1);
+        }
+    }
+
+    public synchronized void onResult(long rttNanos, boolean failed) {
+        boolean wasUsingLimit = inFlight * 2 >= (int) limit;
+        inFlight--;
+        adjustLimit(rttNanos, failed, wasUsingLimit);
+        recordOutcome(failed);
+    }
+
+    private void adjustLimit(long rttNanos, boolean failed, boolean wasUsingLimit) {
+        if (!failed) {
+            baselineRttNanos = baselineRttNanos == Long.MAX_VALUE || rttNanos < baselineRttNanos
+                    ? rttNanos
+                    : baselineRttNanos + (rttNanos - baselineRttNanos) / BASELINE_DRIFT_SAMPLES;
+        }
+        if (failed || rttNanos > baselineRttNanos * settings.latencyTolerance()) {
+            limit = Math.max(settings.minLimit(), limit * settings.backoffRatio());
+        } else if (wasUsingLimit) {
+            limit = Math.min(settings.maxLimit(), limit + 1);
+        }
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (circuit == Circuit.HALF_OPEN) {
+            if (failed) {
+                open();
+            } else if (++halfOpenSuccesses >= settings.halfOpenCalls()) {
+                close();
+            }
+            return;
+        }
+        if (circuit == Circuit.OPEN) {
+            return;
+        }
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+        if (windowCount >= settings.minimumCalls()
+                && windowFailures >= settings.failureRateThreshold() * windowCount) {
+            open();
+        }
+    }
+
+    private void open() {
+        transition(Circuit.OPEN);
+        openedAt = nanoClock.getAsLong();
+    }
+
+    public synchronized void close() {
+        transition(Circuit.CLOSED);
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    private void transition(Circuit to) {
+        Circuit from = circuit;
+        circuit = to;
+        if (from != to) {
+            listener.onTransition(from, to);
+        }
+    }
+
+    public synchronized Circuit getCircuit() {
+        return circuit;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(circuit, (int) limit, inFlight,
+                windowCount == 0 ? 0 : (double) windowFailures / windowCount,
+                baselineRttNanos == Long.MAX_VALUE ? null : Duration.ofNanos(baselineRttNanos));
+    }
+
+    public record Snapshot(Circuit circuit, int concurrencyLimit, int inFlight, double failureRate,
+                           Duration baselineLatency) {
+    }
+
+    public record Settings(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+                           int halfOpenCalls, int initialLimit, int minLimit, int maxLimit,
+                           double latencyTolerance, double backoffRatio) {
+    }
+}
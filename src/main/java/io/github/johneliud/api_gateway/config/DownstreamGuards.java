@@ -0,0 +1,102 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link DownstreamGuard} per backend service, created on first use with the shared
+ * {@code downstream.*} settings and published as {@code gateway.downstream.*} metrics tagged by service.
+ */
+@Component
+public class DownstreamGuards {
+
+    private static final Logger log = LoggerFactory.getLogger(DownstreamGuards.class);
+
+    private final Map<String, DownstreamGuard> guards = new ConcurrentHashMap<>();
+    private final Map<String, Rejections> rejections = new ConcurrentHashMap<>();
+    private final DownstreamGuard.Settings settings;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public DownstreamGuards(@Value("${downstream.breaker.window-size:20}") int windowSize,
+                            @Value("${downstream.breaker.minimum-calls:10}") int minimumCalls,
+                            @Value("${downstream.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                            @Value("${downstream.breaker.open-duration:10s}") Duration openDuration,
+                            @Value("${downstream.breaker.half-open-calls:3}") int halfOpenCalls,
+                            @Value("${downstream.concurrency.initial-limit:20}") int initialLimit,
+                            @Value("${downstream.concurrency.min-limit:2}") int minLimit,
+                            @Value("${downstream.concurrency.max-limit:200}") int maxLimit,
+                            @Value("${downstream.concurrency.latency-tolerance:2.0}") double latencyTolerance,
+                            @Value("${downstream.concurrency.backoff-ratio:0.9}") double backoffRatio,
+                            MeterRegistry meterRegistry) {
+        this(new DownstreamGuard.Settings(windowSize, minimumCalls, failureRateThreshold, openDuration,
+                halfOpenCalls, initialLimit, minLimit, maxLimit, latencyTolerance, backoffRatio), meterRegistry);
+    }
+
+    public DownstreamGuards(DownstreamGuard.Settings settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public DownstreamGuard get(String service) {
+        return guards.computeIfAbsent(service, this::register);
+    }
+
+    public DownstreamGuard find(String service) {
+        return guards.get(service);
+    }
+
+    public Map<String, DownstreamGuard.Snapshot> snapshots() {
+        Map<String, DownstreamGuard.Snapshot> snapshots = new TreeMap<>();
+        guards.forEach((service, guard) -> snapshots.put(service, guard.snapshot()));
+        return snapshots;
+    }
+
+    // Counters are registered with the guard, so a burst of 503s only increments them
+    public void recordRejected(String service, DownstreamGuard.Decision decision) {
+        Rejections counters = rejections.get(service);
+        if (counters != null) {
+            (decision == DownstreamGuard.Decision.CIRCUIT_OPEN ? counters.circuitOpen() : counters.concurrencyLimit())
+                    .increment();
+        }
+    }
+
+    private DownstreamGuard register(String service) {
+        DownstreamGuard guard = new DownstreamGuard(settings,
+                (from, to) -> log.warn("Circuit for {} went from {} to {}", service, from, to));
+        Gauge.builder("gateway.downstream.concurrency.limit", guard, DownstreamGuard::getLimit)
+                .tag("service", service)
+                .register(meterRegistry);
+        Gauge.builder("gateway.downstream.in.flight", guard, DownstreamGuard::getInFlight)
+                .tag("service", service)
+                .register(meterRegistry);
+        Gauge.builder("gateway.downstream.circuit.state", guard, g -> g.getCircuit().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .tag("service", service)
+                .register(meterRegistry);
+        rejections.put(service, new Rejections(rejected(service, "circuit-open"), rejected(service, "concurrency-limit")));
+        return guard;
+    }
+
+    private Counter rejected(String service, String reason) {
+        return Counter.builder("gateway.downstream.rejected")
+                .description("Requests failed fast by the gateway instead of being sent to the backend")
+                .tag("service", service)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private record Rejections(Counter circuitOpen, Counter concurrencyLimit) {
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "downstreams")
+public class DownstreamsEndpoint {
+
+    private final DownstreamGuards guards;
+
+    public DownstreamsEndpoint(DownstreamGuards guards) {
+        this.guards = guards;
+    }
+
+    @ReadOperation
+    public Map<String, DownstreamGuard.Snapshot> downstreams() {
+        return guards.snapshots();
+    }
+
+    @ReadOperation
+    public DownstreamGuard.Snapshot downstream(@Selector String service) {
+        DownstreamGuard guard = guards.find(service);
+        return guard != null ? guard.snapshot() : null;
+    }
+
+    // Closes the circuit immediately, e.g. after a backend has been redeployed
+    @WriteOperation
+    public void closeCircuit(@Selector String service) {
+        DownstreamGuard guard = guards.find(service);
+        if (guard != null) {
+            guard.close();
+        }
+    }
+}
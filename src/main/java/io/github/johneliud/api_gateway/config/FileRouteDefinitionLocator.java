@@ -0,0 +1,154 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves route definitions from a watched YAML file. A reload parses the file off the request path and
+ * swaps the table in one reference write, then asks the gateway to refresh; requests already routed keep
+ * the Route they matched. File events are debounced and unchanged content is ignored, so a burst of writes
+ * causes at most one refresh. A file that fails to parse leaves the current table in place.
+ */
+public class FileRouteDefinitionLocator implements RouteDefinitionLocator, InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FileRouteDefinitionLocator.class);
+
+    private final Path file;
+    private final RouteTableLoader loader;
+    private final ApplicationEventPublisher publisher;
+    private final Duration debounce;
+    private final AtomicReference<RouteTableLoader.RouteTable> table =
+            new AtomicReference<>(new RouteTableLoader.RouteTable(Map.of(), List.of()));
+    private final ScheduledExecutorService reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "route-table-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private byte[] digest = new byte[0];
+    private ScheduledFuture<?> pending;
+    private WatchService watchService;
+
+    public FileRouteDefinitionLocator(Path file, RouteTableLoader loader, ApplicationEventPublisher publisher,
+                                      Duration debounce) {
+        this.file = file.toAbsolutePath();
+        this.loader = loader;
+        this.publisher = publisher;
+        this.debounce = debounce;
+    }
+
+    @Override
+    public Flux<RouteDefinition> getRouteDefinitions() {
+        return Flux.fromIterable(table.get().routes());
+    }
+
+    public RouteTableLoader.RouteTable getTable() {
+        return table.get();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        // The gateway's startup refresh picks up the first table; no event needed
+        load(false);
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watcher = new Thread(this::watch, "route-table-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // Editors often write a file in several steps; wait for the burst to settle before reading
+    public synchronized void scheduleReload() {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = reloader.schedule(() -> {
+            try {
+                load(true);
+            } catch (Exception e) {
+                log.error("Keeping current route table, reload of {} failed: {}", file, e.getMessage());
+            }
+        }, debounce.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Returns true when the file changed and a new table was installed. */
+    public boolean reload() throws IOException {
+        return load(true);
+    }
+
+    private synchronized boolean load(boolean refresh) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        byte[] newDigest = sha256(content);
+        if (Arrays.equals(newDigest, digest)) {
+            return false;
+        }
+        RouteTableLoader.RouteTable loaded = loader.load(new ByteArrayResource(content, file.toString()));
+        table.set(loaded);
+        digest = newDigest;
+        log.info("Loaded {} routes and {} services from {}", loaded.routes().size(), loaded.services().size(), file);
+        if (refresh) {
+            publisher.publishEvent(new RefreshRoutesEvent(this));
+        }
+        return true;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = key.pollEvents().stream()
+                        .anyMatch(event -> file.getFileName().equals(event.context()));
+                key.reset();
+                if (changed) {
+                    scheduleReload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        reloader.shutdownNow();
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
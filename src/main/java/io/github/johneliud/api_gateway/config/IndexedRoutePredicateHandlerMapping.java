@@ -0,0 +1,71 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * Resolves routes through a {@link RouteIndex} instead of evaluating every route's predicate in turn.
+ * Only the indexed candidate's predicate is evaluated; if it declines, if an unindexed route precedes it,
+ * or if the path is percent-encoded, lookup falls back to the gateway's linear scan.
+ */
+@Component
+public class IndexedRoutePredicateHandlerMapping extends RoutePredicateHandlerMapping
+        implements ApplicationListener<RefreshRoutesResultEvent> {
+
+    private final RouteLocator routeLocator;
+    private volatile RouteIndex index = RouteIndex.EMPTY;
+
+    public IndexedRoutePredicateHandlerMapping(FilteringWebHandler webHandler, RouteLocator routeLocator,
+                                               GlobalCorsProperties globalCorsProperties, Environment environment) {
+        super(webHandler, routeLocator, globalCorsProperties, environment);
+        this.routeLocator = routeLocator;
+    }
+
+    // Routes are cached by the gateway and refreshed on RefreshRoutesEvent; recompile once per refresh
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        if (event.isSuccess()) {
+            routeLocator.getRoutes().collectList().subscribe(routes -> index = RouteIndex.compile(routes));
+        }
+    }
+
+    RouteIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
+        RouteIndex current = index;
+        String rawPath = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (current.getRoutes().isEmpty() || rawPath.indexOf('%') >= 0) {
+            return super.lookupRoute(exchange);
+        }
+        int position = current.match(rawPath, exchange.getRequest().getMethod());
+        if (position < 0 || position > current.getFirstUnindexed()) {
+            return position < 0 && current.getFirstUnindexed() == current.getRoutes().size()
+                    ? Mono.empty()
+                    : super.lookupRoute(exchange);
+        }
+        Route route = current.getRoutes().get(position);
+        exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, route.getId());
+        return Mono.from(route.getPredicate().apply(exchange))
+                .flatMap(matched -> {
+                    if (!matched) {
+                        return super.lookupRoute(exchange);
+                    }
+                    validateRoute(route, exchange);
+                    return Mono.just(route);
+                });
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.github.johneliud.api_gateway.util.JwtUtil;
+import io.github.johneliud.api_gateway.util.VerifiedTokenCache;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+@Endpoint(id = "jwtkeys")
+public class JwtKeysEndpoint {
+
+    private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache tokenCache;
+
+    public JwtKeysEndpoint(JwtUtil jwtUtil, VerifiedTokenCache tokenCache) {
+        this.jwtUtil = jwtUtil;
+        this.tokenCache = tokenCache;
+    }
+
+    @ReadOperation
+    public Set<String> keyIds() {
+        return jwtUtil.getKeyIds();
+    }
+
+    @WriteOperation
+    public void putKey(@Selector String keyId, String secret) {
+        jwtUtil.putKey(keyId, secret);
+        tokenCache.invalidateAll();
+    }
+
+    @DeleteOperation
+    public void removeKey(@Selector String keyId) {
+        jwtUtil.removeKey(keyId);
+        tokenCache.invalidateAll();
+    }
+}
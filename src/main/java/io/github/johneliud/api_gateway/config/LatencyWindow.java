@@ -0,0 +1,45 @@
+package io.github.johneliud.api_gateway.config;
+
+import java.util.Arrays;
+
+/**
+ * The last {@code size} latency samples of one route, for percentile-based hedge delays. The percentile is
+ * recomputed after every tenth of the window is replaced rather than on each read, so lookups on the
+ * request path are a field read.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private final double percentile;
+    private final int minSamples;
+    private final int refreshEvery;
+
+    private int next;
+    private int count;
+    private int sinceRefresh;
+    private volatile long current = -1;
+
+    public LatencyWindow(int size, double percentile, int minSamples) {
+        this.samples = new long[size];
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.refreshEvery = Math.max(1, size / 10);
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        if (count >= minSamples && (++sinceRefresh >= refreshEvery || current < 0)) {
+            sinceRefresh = 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            current = sorted[Math.clamp((long) Math.ceil(percentile * count) - 1, 0, count - 1)];
+        }
+    }
+
+    /** The configured percentile in nanoseconds, or -1 until {@code minSamples} have been recorded. */
+    public long percentile() {
+        return current;
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.johneliud.api_gateway.config;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public class LocalRateLimitBackend implements RateLimitBackend {
+
+    private final BucketStore<Bucket> store;
+
+    public LocalRateLimitBackend(long maxKeys, MeterRegistry meterRegistry) {
+        this(maxKeys, meterRegistry, Ticker.systemTicker());
+    }
+
+    LocalRateLimitBackend(long maxKeys, MeterRegistry meterRegistry, Ticker ticker) {
+        this.store = new BucketStore<>("rate-limit.buckets", maxKeys, meterRegistry, ticker);
+    }
+
+    @Override
+    public Bucket resolveBucket(String key, BucketConfiguration configuration) {
+        return store.get(key, configuration, () -> createBucket(configuration));
+    }
+
+    @Override
+    public long size() {
+        return store.size();
+    }
+
+    private Bucket createBucket(BucketConfiguration configuration) {
+        LocalBucketBuilder builder = Bucket.builder();
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+}
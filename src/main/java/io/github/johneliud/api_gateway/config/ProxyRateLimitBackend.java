@@ -0,0 +1,94 @@
+package io.github.johneliud.api_gateway.config;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.github.bucket4j.distributed.proxy.AsyncProxyManager;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteAsyncBucketBuilder;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps bucket state in a shared store through a Bucket4j {@link ProxyManager}, so limits hold across
+ * gateway replicas. Proxies are cached locally and consume from a local copy of the remote state until
+ * {@code maxBatchTokens} or {@code maxBatchDelay} is reached, keeping most requests off the network.
+ *
+ * <p>{@link #tryConsume} goes through the async proxies, so a round trip to the store never blocks the
+ * event loop; the request resumes on the store client's thread when the answer arrives. The blocking
+ * {@link #resolveBucket} proxies are kept for callers off the request path.
+ */
+public class ProxyRateLimitBackend implements RateLimitBackend {
+
+    private final ProxyManager<String> proxyManager;
+    private final AsyncProxyManager<String> asyncProxyManager;
+    private final long maxBatchTokens;
+    private final Duration maxBatchDelay;
+    private final BucketStore<Bucket> proxies;
+    private final BucketStore<AsyncBucketProxy> asyncProxies;
+
+    public ProxyRateLimitBackend(ProxyManager<String> proxyManager, long maxKeys, long maxBatchTokens,
+                                 Duration maxBatchDelay, MeterRegistry meterRegistry) {
+        if (!proxyManager.isAsyncModeSupported()) {
+            throw new IllegalArgumentException("The rate-limit store must support async operations");
+        }
+        this.proxyManager = proxyManager;
+        this.asyncProxyManager = proxyManager.asAsync();
+        this.maxBatchTokens = maxBatchTokens;
+        this.maxBatchDelay = maxBatchDelay;
+        this.proxies = new BucketStore<>("rate-limit.proxies", maxKeys, meterRegistry, Ticker.systemTicker());
+        this.asyncProxies = new BucketStore<>("rate-limit.async-proxies", maxKeys, meterRegistry, Ticker.systemTicker());
+    }
+
+    @Override
+    public Bucket resolveBucket(String key, BucketConfiguration configuration) {
+        return proxies.get(key, configuration, () -> createProxy(key, configuration));
+    }
+
+    @Override
+    public Mono<ConsumptionProbe> tryConsume(String key, BucketConfiguration configuration) {
+        return Mono.fromFuture(() -> asyncProxies.get(key, configuration, () -> createAsyncProxy(key, configuration))
+                .tryConsumeAndReturnRemaining(1));
+    }
+
+    @Override
+    public long size() {
+        return proxies.size() + asyncProxies.size();
+    }
+
+    private Bucket createProxy(String key, BucketConfiguration configuration) {
+        RemoteBucketBuilder<String> builder = proxyManager.builder();
+        long batchTokens = batchTokensFor(configuration);
+        if (batchTokens > 0) {
+            builder = builder.withOptimization(Optimizations.delaying(new DelayParameters(batchTokens, maxBatchDelay)));
+        }
+        return builder.build(key, () -> configuration);
+    }
+
+    private AsyncBucketProxy createAsyncProxy(String key, BucketConfiguration configuration) {
+        RemoteAsyncBucketBuilder<String> builder = asyncProxyManager.builder();
+        long batchTokens = batchTokensFor(configuration);
+        if (batchTokens > 0) {
+            builder = builder.withOptimization(Optimizations.delaying(new DelayParameters(batchTokens, maxBatchDelay)));
+        }
+        return builder.build(key, () -> CompletableFuture.completedFuture(configuration));
+    }
+
+    // Small limits (e.g. login attempts) stay exact; a replica may only run ahead by a tenth of the tightest bandwidth
+    long batchTokensFor(BucketConfiguration configuration) {
+        long smallestCapacity = Long.MAX_VALUE;
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            smallestCapacity = Math.min(smallestCapacity, bandwidth.getCapacity());
+        }
+        return Math.min(maxBatchTokens, smallestCapacity / 10);
+    }
+}
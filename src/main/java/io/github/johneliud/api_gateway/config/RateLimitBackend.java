@@ -0,0 +1,33 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+public interface RateLimitBackend {
+
+    Bucket resolveBucket(String key, BucketConfiguration configuration);
+
+    /**
+     * Takes one token without blocking the caller. The default consumes from {@link #resolveBucket}, which
+     * only suits backends whose buckets live in memory; a remote backend must not wait on the network here.
+     */
+    default Mono<ConsumptionProbe> tryConsume(String key, BucketConfiguration configuration) {
+        return Mono.fromSupplier(() -> resolveBucket(key, configuration).tryConsumeAndReturnRemaining(1));
+    }
+
+    long size();
+
+    static Duration timeToFullRefill(BucketConfiguration configuration) {
+        long nanos = 0;
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            long periods = (bandwidth.getCapacity() + bandwidth.getRefillTokens() - 1) / bandwidth.getRefillTokens();
+            nanos = Math.max(nanos, periods * bandwidth.getRefillPeriodNanos());
+        }
+        return Duration.ofNanos(nanos);
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
+import io.lettuce.core.RedisClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * The backend is chosen when the bean is created rather than by a condition on {@code rate.limit.backend}:
+ * an AOT-processed build fixes conditions at build time, and the backend is set per environment.
+ */
+@Configuration
+public class RateLimitBackendConfig implements DisposableBean {
+
+    @Value("${rate.limit.max-keys:100000}")
+    private long maxKeys;
+
+    private RedisClient redisClient;
+
+    @Bean
+    public RateLimitBackend rateLimitBackend(@Value("${rate.limit.backend:local}") String backend,
+                                             @Value("${rate.limit.redis.url:redis://localhost:6379}") String redisUrl,
+                                             @Value("${rate.limit.redis.batch.tokens:50}") long batchTokens,
+                                             @Value("${rate.limit.redis.batch.delay-ms:200}") long batchDelayMs,
+                                             MeterRegistry meterRegistry) {
+        return switch (backend) {
+            case "local" -> new LocalRateLimitBackend(maxKeys, meterRegistry);
+            case "redis" -> redisRateLimitBackend(redisUrl, batchTokens, batchDelayMs, meterRegistry);
+            default -> throw new IllegalArgumentException(
+                    "rate.limit.backend must be local or redis but was " + backend);
+        };
+    }
+
+    private RateLimitBackend redisRateLimitBackend(String redisUrl, long batchTokens, long batchDelayMs,
+                                                   MeterRegistry meterRegistry) {
+        redisClient = RedisClient.create(redisUrl);
+        ProxyManager<String> proxyManager = LettuceBasedProxyManager.builderFor(redisClient)
+                .withExpirationStrategy(ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(Duration.ofMinutes(1)))
+                .build()
+                .withMapper(key -> ("rate-limit:" + key).getBytes(StandardCharsets.UTF_8));
+        return new ProxyRateLimitBackend(proxyManager, maxKeys, batchTokens, Duration.ofMillis(batchDelayMs), meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        if (redisClient != null) {
+            redisClient.shutdown();
+        }
+    }
+}
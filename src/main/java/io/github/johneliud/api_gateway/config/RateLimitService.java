@@ -2,48 +2,49 @@ package io.github.johneliud.api_gateway.config;
 
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
 import io.github.bucket4j.Refill;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class RateLimitService {
-    
-    private static final Logger log = LoggerFactory.getLogger(RateLimitService.class);
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
-    
-    @Value("${rate.limit.login.capacity:5}")
-    private int capacity;
-    
-    @Value("${rate.limit.login.refill.tokens:5}")
-    private int refillTokens;
-    
-    @Value("${rate.limit.login.refill.minutes:15}")
-    private int refillMinutes;
 
-    public Bucket resolveBucket(String key) {
-        return cache.computeIfAbsent(key, k -> createNewBucket());
-    }
+    private final RateLimitBackend backend;
+    private final BucketConfiguration loginLimit;
 
-    private Bucket createNewBucket() {
-        Bandwidth limit = Bandwidth.classic(capacity, Refill.intervally(refillTokens, Duration.ofMinutes(refillMinutes)));
-        return Bucket.builder()
-                .addLimit(limit)
+    public RateLimitService(RateLimitBackend backend,
+                            @Value("${rate.limit.login.capacity:5}") int capacity,
+                            @Value("${rate.limit.login.refill.tokens:5}") int refillTokens,
+                            @Value("${rate.limit.login.refill.minutes:15}") int refillMinutes) {
+        this.backend = backend;
+        this.loginLimit = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(refillTokens, Duration.ofMinutes(refillMinutes))))
                 .build();
     }
 
+    public BucketConfiguration getLoginLimit() {
+        return loginLimit;
+    }
+
+    public Bucket resolveBucket(String key) {
+        return backend.resolveBucket(key, loginLimit);
+    }
+
     public boolean tryConsume(String key) {
-        Bucket bucket = resolveBucket(key);
-        boolean consumed = bucket.tryConsume(1);
-        if (!consumed) {
-            log.warn("Rate limit exceeded for key: {}", key);
-        }
-        return consumed;
+        return tryConsume(key, loginLimit).isConsumed();
+    }
+
+    public ConsumptionProbe tryConsume(String key, BucketConfiguration configuration) {
+        return backend.resolveBucket(key, configuration).tryConsumeAndReturnRemaining(1);
+    }
+
+    // The request-path form: never blocks, whichever backend is configured
+    public Mono<ConsumptionProbe> consume(String key, BucketConfiguration configuration) {
+        return backend.tryConsume(key, configuration);
     }
 }
@@ -0,0 +1,175 @@
+package io.github.johneliud.api_gateway.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Memory-bounded store for public GET responses. Entries are weighed by body size and evicted by
+ * Caffeine's size-aware policy once {@code response.cache.max-bytes} is reached; bodies above
+ * {@code response.cache.off-heap-threshold-bytes} are kept in direct buffers.
+ */
+@Component
+public class ResponseCache {
+
+    // Approximate fixed cost of the key, headers and cache node on top of the body
+    static final int ENTRY_OVERHEAD_BYTES = 512;
+
+    private static final List<String> STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.CACHE_CONTROL, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.EXPIRES);
+
+    private final Cache<String, CachedResponse> cache;
+    private final long maxEntryBytes;
+    private final long offHeapThresholdBytes;
+    private final Counter bytesSaved;
+    private final Counter notModified;
+
+    public ResponseCache(@Value("${response.cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${response.cache.max-entry-bytes:8388608}") long maxEntryBytes,
+                         @Value("${response.cache.off-heap-threshold-bytes:65536}") long offHeapThresholdBytes,
+                         MeterRegistry meterRegistry) {
+        this.maxEntryBytes = maxEntryBytes;
+        this.offHeapThresholdBytes = offHeapThresholdBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResponse response) -> response.size() + key.length() + ENTRY_OVERHEAD_BYTES)
+                .expireAfter(new ResponseExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.response-cache");
+        this.bytesSaved = Counter.builder("gateway.response.cache.bytes.saved")
+                .description("Upstream response bytes served from the gateway cache instead of the backend")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.notModified = Counter.builder("gateway.response.cache.not.modified")
+                .description("Conditional requests answered with 304 at the gateway")
+                .register(meterRegistry);
+    }
+
+    public static String key(ServerHttpRequest request) {
+        String acceptEncoding = request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING);
+        return request.getURI().getRawPath()
+                + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : "")
+                + "|" + (acceptEncoding != null ? acceptEncoding.toLowerCase(Locale.ROOT).replace(" ", "") : "");
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public void put(String key, HttpHeaders responseHeaders, ByteBuffer body, Duration ttl) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : STORED_HEADERS) {
+            List<String> values = responseHeaders.get(name);
+            if (values != null) {
+                headers.put(name, values);
+            }
+        }
+        headers.setContentLength(body.remaining());
+        cache.put(key, new CachedResponse(HttpHeaders.readOnlyHttpHeaders(headers), store(body), ttl.toNanos()));
+    }
+
+    public void recordHit(CachedResponse response) {
+        bytesSaved.increment(response.size());
+    }
+
+    public void recordNotModified(CachedResponse response) {
+        notModified.increment();
+        bytesSaved.increment(response.size());
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private ByteBuffer store(ByteBuffer body) {
+        if (body.remaining() < offHeapThresholdBytes || body.isDirect()) {
+            return body.asReadOnlyBuffer();
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(body.remaining());
+        direct.put(body.duplicate()).flip();
+        return direct.asReadOnlyBuffer();
+    }
+
+    // Returns null when the upstream forbids shared caching, otherwise the shorter of its max-age and the route TTL
+    public static Duration effectiveTtl(HttpHeaders headers, Duration routeTtl) {
+        if (headers.containsHeader(HttpHeaders.SET_COOKIE) || hasUnsupportedVary(headers)) {
+            return null;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return routeTtl;
+        }
+        Duration ttl = routeTtl;
+        Duration maxAge = null;
+        for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+            String d = directive.trim();
+            if (d.equals("no-store") || d.equals("private") || d.equals("no-cache")) {
+                return null;
+            }
+            if (d.startsWith("s-maxage=")) {
+                maxAge = parseSeconds(d.substring(9));
+            } else if (d.startsWith("max-age=") && maxAge == null) {
+                maxAge = parseSeconds(d.substring(8));
+            }
+        }
+        if (maxAge != null && maxAge.compareTo(ttl) < 0) {
+            ttl = maxAge;
+        }
+        return ttl.isZero() || ttl.isNegative() ? null : ttl;
+    }
+
+    private static boolean hasUnsupportedVary(HttpHeaders headers) {
+        for (String vary : headers.getVary()) {
+            String name = vary.trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("accept-encoding") && !name.equals("origin") && !name.startsWith("access-control-")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Duration parseSeconds(String value) {
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return Duration.ZERO;
+        }
+    }
+
+    private static class ResponseExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return value.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.johneliud.api_gateway.config;
+
+/**
+ * Caps extra upstream attempts (hedges and retries) at a fixed fraction of original requests. Every
+ * request deposits {@code ratio} of a token, every extra attempt spends a whole one, and the balance is
+ * capped at {@code maxBalance} so a quiet period cannot save up a large burst. Over any stretch of time
+ * extra attempts therefore stay within {@code ratio} × requests + {@code maxBalance}.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double maxBalance;
+
+    private double balance;
+
+    public RetryBudget(double ratio, int maxBalance) {
+        this.ratio = ratio;
+        this.maxBalance = maxBalance;
+    }
+
+    public synchronized void onRequest() {
+        balance = Math.min(balance + ratio, maxBalance);
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (balance < 1) {
+            return false;
+        }
+        balance--;
+        return true;
+    }
+
+    public synchronized double getBalance() {
+        return balance;
+    }
+}
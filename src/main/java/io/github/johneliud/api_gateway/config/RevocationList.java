@@ -0,0 +1,255 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.github.johneliud.api_gateway.util.RevocationIndex;
+import io.github.johneliud.api_gateway.util.VerifiedToken;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked tokens ({@code jti}) and user cutoffs, checked by {@link io.github.johneliud.api_gateway.filter.AuthenticationFilter}
+ * after a token verifies. Entries come from the watched file {@code jwt.revocation.file} and from the
+ * {@code revocations} actuator endpoint. Every change rebuilds a {@link RevocationIndex} off the request
+ * path and installs it with one volatile write, so a request sees either the old set or the new one and
+ * a lookup never leaves memory.
+ *
+ * <p>Each line of the file is {@code token <jti> <exp>} or {@code user <id> <cutoff>}, in epoch seconds;
+ * blank lines and lines starting with {@code #} are skipped. A token entry lapses at the token's
+ * {@code exp}, after which the token is refused anyway. A user cutoff refuses the user's tokens issued at
+ * or before it and lapses {@code jwt.revocation.max-token-lifetime} later. A file that fails to parse
+ * leaves the current entries in place.
+ */
+@Component
+public class RevocationList implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocationList.class);
+
+    private final Path file;
+    private final Duration debounce;
+    private final Duration maxTokenLifetime;
+    private final Duration purgeInterval;
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, Cutoff> revokedUsers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "revocation-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile RevocationIndex index = RevocationIndex.EMPTY;
+    private Entries fromFile = Entries.NONE;
+    private ScheduledFuture<?> pending;
+    private WatchService watchService;
+
+    public RevocationList(@Value("${jwt.revocation.file:}") String file,
+                          @Value("${jwt.revocation.debounce:500ms}") Duration debounce,
+                          @Value("${jwt.revocation.max-token-lifetime:24h}") Duration maxTokenLifetime,
+                          @Value("${jwt.revocation.purge-interval:5m}") Duration purgeInterval,
+                          MeterRegistry meterRegistry) {
+        this.file = file.isBlank() ? null : Path.of(file).toAbsolutePath();
+        this.debounce = debounce;
+        this.maxTokenLifetime = maxTokenLifetime;
+        this.purgeInterval = purgeInterval;
+        Gauge.builder("gateway.revocations.entries", this, list -> list.index.tokens())
+                .description("Revoked token ids in the active index")
+                .tag("kind", "token")
+                .register(meterRegistry);
+        Gauge.builder("gateway.revocations.entries", this, list -> list.index.users())
+                .description("Users with an active revocation cutoff")
+                .tag("kind", "user")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        return index.isRevoked(token);
+    }
+
+    public RevocationIndex getIndex() {
+        return index;
+    }
+
+    /** Revokes one token until its expiry; without one, until no token issued now could still be valid. */
+    public void revokeToken(String tokenId, Long expiresAtMillis) {
+        long until = expiresAtMillis != null ? expiresAtMillis : System.currentTimeMillis() + maxTokenLifetime.toMillis();
+        revokedTokens.merge(tokenId, until, Math::max);
+        rebuild();
+    }
+
+    /** Refuses every token of the user issued up to now. */
+    public void revokeUser(String userId) {
+        long now = System.currentTimeMillis();
+        revokedUsers.merge(userId, new Cutoff(now, now + maxTokenLifetime.toMillis()), Cutoff::later);
+        rebuild();
+    }
+
+    /** Lifts a revocation made through {@link #revokeToken}; entries from the file stay until the file drops them. */
+    public boolean removeToken(String tokenId) {
+        boolean removed = revokedTokens.remove(tokenId) != null;
+        rebuild();
+        return removed;
+    }
+
+    public boolean removeUser(String userId) {
+        boolean removed = revokedUsers.remove(userId) != null;
+        rebuild();
+        return removed;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        long purgeMillis = purgeInterval.toMillis();
+        reloader.scheduleWithFixedDelay(this::rebuild, purgeMillis, purgeMillis, TimeUnit.MILLISECONDS);
+        if (file == null) {
+            return;
+        }
+        load();
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watcher = new Thread(this::watch, "revocation-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // A burst of writes to the file causes one reload
+    public synchronized void scheduleReload() {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = reloader.schedule(() -> {
+            try {
+                load();
+            } catch (Exception e) {
+                log.error("Keeping current revocations, reload of {} failed: {}", file, e.getMessage());
+            }
+        }, debounce.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Re-reads the file now instead of waiting for the watcher. */
+    public void reload() throws IOException {
+        if (file != null) {
+            load();
+        }
+    }
+
+    private void load() throws IOException {
+        Entries loaded = parse(Files.readAllLines(file, StandardCharsets.UTF_8), maxTokenLifetime);
+        synchronized (this) {
+            fromFile = loaded;
+        }
+        rebuild();
+        log.info("Loaded {} revoked tokens and {} user cutoffs from {}", loaded.tokens().size(),
+                loaded.users().size(), file);
+    }
+
+    // Also runs every purge interval, so entries that lapsed leave the index and the maps
+    synchronized void rebuild() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(until -> until <= now);
+        revokedUsers.values().removeIf(cutoff -> cutoff.until() <= now);
+        List<String> tokenIds = new ArrayList<>(revokedTokens.size() + fromFile.tokens().size());
+        fromFile.tokens().forEach((tokenId, until) -> {
+            if (until > now && !revokedTokens.containsKey(tokenId)) {
+                tokenIds.add(tokenId);
+            }
+        });
+        tokenIds.addAll(revokedTokens.keySet());
+        Map<String, Long> userCutoffs = new HashMap<>();
+        fromFile.users().forEach((userId, cutoff) -> {
+            if (cutoff.until() > now) {
+                userCutoffs.put(userId, cutoff.at());
+            }
+        });
+        revokedUsers.forEach((userId, cutoff) -> userCutoffs.merge(userId, cutoff.at(), Math::max));
+        index = new RevocationIndex(tokenIds, userCutoffs);
+    }
+
+    static Entries parse(List<String> lines, Duration maxTokenLifetime) {
+        Map<String, Long> tokens = new HashMap<>();
+        Map<String, Cutoff> users = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected <token|user> <id> <epoch-seconds>");
+            }
+            long millis;
+            try {
+                millis = TimeUnit.SECONDS.toMillis(Long.parseLong(fields[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": invalid epoch seconds '" + fields[2] + "'");
+            }
+            switch (fields[0]) {
+                case "token" -> tokens.merge(fields[1], millis, Math::max);
+                case "user" -> users.merge(fields[1], new Cutoff(millis, millis + maxTokenLifetime.toMillis()),
+                        Cutoff::later);
+                default -> throw new IllegalArgumentException("Line " + (i + 1) + ": unknown kind '" + fields[0] + "'");
+            }
+        }
+        return new Entries(Map.copyOf(tokens), Map.copyOf(users));
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = key.pollEvents().stream()
+                        .anyMatch(event -> file.getFileName().equals(event.context()));
+                key.reset();
+                if (changed) {
+                    scheduleReload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        reloader.shutdownNow();
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    record Entries(Map<String, Long> tokens, Map<String, Cutoff> users) {
+
+        static final Entries NONE = new Entries(Map.of(), Map.of());
+    }
+
+    /** Tokens issued at or before {@code at} are refused; the entry lapses at {@code until}. */
+    record Cutoff(long at, long until) {
+
+        Cutoff later(Cutoff other) {
+            return other.at > at ? other : this;
+        }
+    }
+}
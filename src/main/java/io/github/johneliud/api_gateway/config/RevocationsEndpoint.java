@@ -0,0 +1,55 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.github.johneliud.api_gateway.util.RevocationIndex;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.OptionalParameter;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /actuator/revocations/token/<jti>} with an optional {@code expiresAt} (epoch seconds, the
+ * token's {@code exp}) revokes one token; {@code POST /actuator/revocations/user/<id>} revokes every token
+ * the user holds now. {@code DELETE} on the same paths lifts a revocation made here.
+ */
+@Component
+@Endpoint(id = "revocations")
+public class RevocationsEndpoint {
+
+    private final RevocationList revocations;
+
+    public RevocationsEndpoint(RevocationList revocations) {
+        this.revocations = revocations;
+    }
+
+    @ReadOperation
+    public Map<String, Integer> summary() {
+        RevocationIndex index = revocations.getIndex();
+        return Map.of("tokens", index.tokens(), "users", index.users());
+    }
+
+    @WriteOperation
+    public void revoke(@Selector String kind, @Selector String id, @OptionalParameter Long expiresAt) {
+        switch (kind) {
+            case "token" -> revocations.revokeToken(id,
+                    expiresAt != null ? TimeUnit.SECONDS.toMillis(expiresAt) : null);
+            case "user" -> revocations.revokeUser(id);
+            default -> throw new IllegalArgumentException("Unknown revocation kind '" + kind + "', expected token or user");
+        }
+    }
+
+    @DeleteOperation
+    public Map<String, Boolean> remove(@Selector String kind, @Selector String id) {
+        boolean removed = switch (kind) {
+            case "token" -> revocations.removeToken(id);
+            case "user" -> revocations.removeUser(id);
+            default -> throw new IllegalArgumentException("Unknown revocation kind '" + kind + "', expected token or user");
+        };
+        return Map.of("removed", removed);
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.johneliud.api_gateway.config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file that rolls over by size: {@code access.log} becomes {@code access.log.1}, older files
+ * shift up by one and the file past {@code maxHistory} is deleted. Used from a single writer thread.
+ */
+class RollingFile implements AutoCloseable {
+
+    private final Path file;
+    private final long maxBytes;
+    private final int maxHistory;
+    private FileChannel channel;
+
+    RollingFile(Path file, long maxBytes, int maxHistory) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxHistory = maxHistory;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    void write(ByteBuffer bytes) throws IOException {
+        if (channel.size() > 0 && channel.size() + bytes.remaining() > maxBytes) {
+            roll();
+        }
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private void roll() throws IOException {
+        channel.close();
+        Files.deleteIfExists(archive(maxHistory));
+        for (int i = maxHistory - 1; i >= 1; i--) {
+            if (Files.exists(archive(i))) {
+                Files.move(archive(i), archive(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxHistory > 0) {
+            Files.move(file, archive(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        open();
+    }
+
+    private Path archive(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
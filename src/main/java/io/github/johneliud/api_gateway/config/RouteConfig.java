@@ -1,87 +1,231 @@
 package io.github.johneliud.api_gateway.config;
 
 import io.github.johneliud.api_gateway.filter.AuthenticationFilter;
+import io.github.johneliud.api_gateway.filter.BodyLimitFilter;
+import io.github.johneliud.api_gateway.filter.CompressionFilter;
+import io.github.johneliud.api_gateway.filter.DownstreamProtectionFilter;
+import io.github.johneliud.api_gateway.filter.HedgingFilter;
 import io.github.johneliud.api_gateway.filter.RateLimitGatewayFilter;
+import io.github.johneliud.api_gateway.filter.RequestCoalescingFilter;
+import io.github.johneliud.api_gateway.filter.ResponseCacheFilter;
+import io.github.johneliud.api_gateway.filter.UserConcurrencyFilter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.BooleanSpec;
+import org.springframework.cloud.gateway.route.builder.PredicateSpec;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.route.builder.UriSpec;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
+@ConditionalOnProperty(name = "gateway.routes.source", havingValue = "java", matchIfMissing = true)
 public class RouteConfig {
 
-    @Value("${user.service.url}")
-    private String userServiceUrl;
+    @Value("${rate.limit.product-list.per-second:20}")
+    private long productListPerSecond;
+
+    @Value("${rate.limit.product-list.burst:40}")
+    private long productListBurst;
+
+    @Value("${rate.limit.product-list.per-hour:5000}")
+    private long productListPerHour;
+
+    @Value("${rate.limit.orders.per-second:10}")
+    private long ordersPerSecond;
+
+    @Value("${rate.limit.orders.burst:20}")
+    private long ordersBurst;
+
+    @Value("${rate.limit.orders.per-hour:2000}")
+    private long ordersPerHour;
+
+    @Value("${response.cache.ttl.users:60s}")
+    private Duration usersCacheTtl;
+
+    @Value("${response.cache.ttl.products:30s}")
+    private Duration productsCacheTtl;
+
+    @Value("${response.cache.ttl.media:10m}")
+    private Duration mediaCacheTtl;
+
+    @Value("${response.cache.media.max-entry-bytes:262144}")
+    private long mediaCacheMaxEntryBytes;
+
+    @Value("${upstream.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${upstream.hedge.max-delay:500ms}")
+    private Duration hedgeMaxDelay;
+
+    @Value("${upstream.hedge.budget-ratio:0.1}")
+    private double hedgeBudgetRatio;
+
+    @Value("${response.compression.min-bytes:1024}")
+    private long compressionMinBytes;
 
-    @Value("${product.service.url}")
-    private String productServiceUrl;
+    @Value("${request.body.product.max-bytes:5242880}")
+    private long productMaxBodyBytes;
 
-    @Value("${media.service.url}")
-    private String mediaServiceUrl;
+    @Value("${request.body.media.max-bytes:52428800}")
+    private long mediaMaxBodyBytes;
 
-    @Value("${order.service.url}")
-    private String orderServiceUrl;
+    @Value("${request.body.min-bytes-per-second:1024}")
+    private long minUploadBytesPerSecond;
+
+    @Value("${request.body.rate-grace:10s}")
+    private Duration uploadRateGrace;
+
+    @Value("${gateway.routes.source:java}")
+    private String routesSource;
 
     @Bean
     public RouteLocator gatewayRoutes(RouteLocatorBuilder builder,
                                       AuthenticationFilter authFilter,
-                                      RateLimitGatewayFilter rateLimitFilter) {
+                                      RateLimitGatewayFilter rateLimitFilter,
+                                      ResponseCacheFilter cacheFilter,
+                                      RequestCoalescingFilter coalescingFilter,
+                                      DownstreamProtectionFilter guardFilter,
+                                      HedgingFilter hedgingFilter,
+                                      CompressionFilter compressionFilter,
+                                      BodyLimitFilter bodyLimitFilter,
+                                      UserConcurrencyFilter userConcurrencyFilter) {
+        RouteTableConfig.requireRoutesSource("java", routesSource);
+        // Each route ends with its backend's breaker/limiter so cache hits and rejected requests hold no permit.
+        // lb://<service> is resolved to one of the instances in <service>.service.url by LoadBalancerFilter.
         return builder.routes()
                 // Public user routes
-                .route("user-register", r -> r.path("/api/users/register").and().method("POST")
-                        .uri(userServiceUrl))
+                .route("user-register", r -> indexed(r, "/api/users/register", "POST")
+                        .filters(f -> f.filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("user"))))
+                        .uri("lb://user"))
 
-                .route("user-login", r -> r.path("/api/users/login").and().method("POST")
-                        .filters(f -> f.filter(rateLimitFilter.apply(new RateLimitGatewayFilter.Config())))
-                        .uri(userServiceUrl))
+                .route("user-login", r -> indexed(r, "/api/users/login", "POST")
+                        .filters(f -> f.filter(rateLimitFilter.apply(new RateLimitGatewayFilter.Config()))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("user"))))
+                        .uri("lb://user"))
 
-                .route("user-avatar", r -> r.path("/api/users/avatars/{filename}").and().method("GET")
-                        .uri(userServiceUrl))
+                .route("user-avatar", r -> indexed(r, "/api/users/avatars/{filename}", "GET")
+                        .filters(f -> f.filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("user"))))
+                        .uri("lb://user"))
 
-                .route("user-by-id", r -> r.path("/api/users/{id}").and().method("GET")
-                        .uri(userServiceUrl))
+                .route("user-by-id", r -> indexed(r, "/api/users/{id}", "GET")
+                        .filters(f -> f.filter(cacheFilter.apply(new ResponseCacheFilter.Config().setTtl(usersCacheTtl)))
+                                .filter(coalescingFilter.apply(new RequestCoalescingFilter.Config()))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("user"))))
+                        .uri("lb://user"))
 
                 // Authenticated user routes
-                .route("user-profile", r -> r.path("/api/users/profile/**")
-                        .filters(f -> f.filter(authFilter.apply(new AuthenticationFilter.Config())))
-                        .uri(userServiceUrl))
+                .route("user-profile", r -> indexed(r, "/api/users/profile/**", null)
+                        .filters(f -> f.filter(authFilter.apply(new AuthenticationFilter.Config()))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("user"))))
+                        .uri("lb://user"))
 
                 // Product routes — specific before catch-all
-                .route("product-my-products", r -> r.path("/api/products/my-products").and().method("GET")
-                        .filters(f -> f.filter(authFilter.apply(new AuthenticationFilter.Config())))
-                        .uri(productServiceUrl))
-
-                .route("product-list", r -> r.path("/api/products").and().method("GET")
-                        .uri(productServiceUrl))
-
-                .route("product-by-id", r -> r.path("/api/products/{id}").and().method("GET")
-                        .uri(productServiceUrl))
-
-                .route("product-auth", r -> r.path("/api/products/**")
-                        .filters(f -> f.filter(authFilter.apply(new AuthenticationFilter.Config())))
-                        .uri(productServiceUrl))
+                .route("product-my-products", r -> indexed(r, "/api/products/my-products", "GET")
+                        .filters(f -> f.filter(authFilter.apply(new AuthenticationFilter.Config()))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("product"))))
+                        .uri("lb://product"))
+
+                .route("product-list", r -> indexed(r, "/api/products", "GET")
+                        // The limit is per client, so it is ordered ahead of the cache and coalescing filters
+                        .filters(f -> f.filter(compressionFilter.apply(compression()))
+                                .filter(rateLimitFilter.apply(new RateLimitGatewayFilter.Config()
+                                        .setKeyResolver(RateLimitGatewayFilter.KeyResolver.IP)
+                                        .addLimit(productListBurst, productListPerSecond, Duration.ofSeconds(1))
+                                        .addLimit(productListPerHour, productListPerHour, Duration.ofHours(1))
+                                        .setOrder(RateLimitGatewayFilter.BEFORE_RESPONSE_FILTERS)))
+                                .filter(cacheFilter.apply(new ResponseCacheFilter.Config().setTtl(productsCacheTtl)))
+                                .filter(coalescingFilter.apply(new RequestCoalescingFilter.Config()))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("product"))))
+                        .uri("lb://product"))
+
+                .route("product-by-id", r -> indexed(r, "/api/products/{id}", "GET")
+                        .filters(f -> f.filter(cacheFilter.apply(new ResponseCacheFilter.Config().setTtl(productsCacheTtl)))
+                                .filter(coalescingFilter.apply(new RequestCoalescingFilter.Config()))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("product")))
+                                .filter(hedgingFilter.apply(hedge())))
+                        .uri("lb://product"))
+
+                .route("product-auth", r -> indexed(r, "/api/products/**", null)
+                        .filters(f -> f.filter(bodyLimitFilter.apply(bodyLimit(productMaxBodyBytes)))
+                                .filter(authFilter.apply(new AuthenticationFilter.Config()))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("product"))))
+                        .uri("lb://product"))
 
                 // Media routes — specific before catch-all
-                .route("media-by-id", r -> r.path("/api/media/{id}").and().method("GET")
-                        .uri(mediaServiceUrl))
+                // Binary routes stream upstream buffers to the client as-is; only small media is cached
+                .route("media-by-id", r -> indexed(r, "/api/media/{id}", "GET")
+                        .filters(f -> f.filter(cacheFilter.apply(new ResponseCacheFilter.Config()
+                                .setTtl(mediaCacheTtl)
+                                .setMaxEntryBytes(mediaCacheMaxEntryBytes)))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("media"))))
+                        .uri("lb://media"))
+
+                .route("media-by-product", r -> indexed(r, "/api/media/product/{productId}", "GET")
+                        .filters(f -> f.filter(cacheFilter.apply(new ResponseCacheFilter.Config().setTtl(productsCacheTtl)))
+                                .filter(coalescingFilter.apply(new RequestCoalescingFilter.Config()))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("media")))
+                                .filter(hedgingFilter.apply(hedge())))
+                        .uri("lb://media"))
+
+                .route("media-auth", r -> indexed(r, "/api/media/**", null)
+                        .filters(f -> f.filter(bodyLimitFilter.apply(bodyLimit(mediaMaxBodyBytes)))
+                                .filter(authFilter.apply(new AuthenticationFilter.Config()))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("media"))))
+                        .uri("lb://media"))
+
+                // Order and cart routes (all authenticated)
+                .route("orders", r -> indexed(r, "/api/orders/**", null)
+                        .filters(f -> f.filter(compressionFilter.apply(compression()))
+                                .filter(authFilter.apply(new AuthenticationFilter.Config()))
+                                .filter(rateLimitFilter.apply(new RateLimitGatewayFilter.Config()
+                                        .setKeyResolver(RateLimitGatewayFilter.KeyResolver.USER)
+                                        .addLimit(ordersBurst, ordersPerSecond, Duration.ofSeconds(1))
+                                        .addLimit(ordersPerHour, ordersPerHour, Duration.ofHours(1))))
+                                .filter(userConcurrencyFilter.apply(new UserConcurrencyFilter.Config().setService("order")))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("order"))))
+                        .uri("lb://order"))
+
+                .route("cart", r -> indexed(r, "/api/cart/**", null)
+                        .filters(f -> f.filter(authFilter.apply(new AuthenticationFilter.Config()))
+                                .filter(userConcurrencyFilter.apply(new UserConcurrencyFilter.Config().setService("order")))
+                                .filter(guardFilter.apply(new DownstreamProtectionFilter.Config().setService("order"))))
+                        .uri("lb://order"))
 
-                .route("media-by-product", r -> r.path("/api/media/product/{productId}").and().method("GET")
-                        .uri(mediaServiceUrl))
+                .build();
+    }
 
-                .route("media-auth", r -> r.path("/api/media/**")
-                        .filters(f -> f.filter(authFilter.apply(new AuthenticationFilter.Config())))
-                        .uri(mediaServiceUrl))
+    // Hedging runs last: it makes the upstream calls itself instead of handing off to the routing filter
+    private HedgingFilter.Config hedge() {
+        return new HedgingFilter.Config()
+                .setPercentile(hedgePercentile)
+                .setMaxDelay(hedgeMaxDelay)
+                .setBudgetRatio(hedgeBudgetRatio);
+    }
 
-                // Order and cart routes (all authenticated)
-                .route("orders", r -> r.path("/api/orders/**")
-                        .filters(f -> f.filter(authFilter.apply(new AuthenticationFilter.Config())))
-                        .uri(orderServiceUrl))
+    // Checked first, so an oversized Content-Length is turned away before token verification
+    private BodyLimitFilter.Config bodyLimit(long maxBytes) {
+        return new BodyLimitFilter.Config()
+                .setMaxBytes(maxBytes)
+                .setMinBytesPerSecond(minUploadBytesPerSecond)
+                .setRateGrace(uploadRateGrace);
+    }
 
-                .route("cart", r -> r.path("/api/cart/**")
-                        .filters(f -> f.filter(authFilter.apply(new AuthenticationFilter.Config())))
-                        .uri(orderServiceUrl))
+    private CompressionFilter.Config compression() {
+        return new CompressionFilter.Config().setMinBytes(compressionMinBytes);
+    }
 
-                .build();
+    // Declares the path/method predicate and records it as metadata for the compiled RouteIndex
+    private static UriSpec indexed(PredicateSpec r, String path, String method) {
+        BooleanSpec spec = r.path(path);
+        if (method == null) {
+            return spec.metadata(RouteIndex.PATH_METADATA, path);
+        }
+        return spec.and().method(method)
+                .metadata(RouteIndex.PATH_METADATA, path)
+                .metadata(RouteIndex.METHOD_METADATA, method);
     }
 }
@@ -0,0 +1,151 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Segment trie over the path and method declared for each route, compiled once per route refresh.
+ * {@link #match} returns the position of the first route (in route-table order) whose pattern accepts the
+ * path, so "specific before catch-all" precedence is preserved. The index is deliberately at least as
+ * permissive as the real predicates: callers still evaluate the chosen route's predicate.
+ */
+public final class RouteIndex {
+
+    public static final String PATH_METADATA = "index.path";
+    public static final String METHOD_METADATA = "index.method";
+
+    public static final RouteIndex EMPTY = new RouteIndex(new Node(), List.of(), 0);
+
+    private final Node root;
+    private final List<Route> routes;
+    // Position of the first route without index metadata; only routes before it can be chosen from the index
+    private final int firstUnindexed;
+
+    private RouteIndex(Node root, List<Route> routes, int firstUnindexed) {
+        this.root = root;
+        this.routes = routes;
+        this.firstUnindexed = firstUnindexed;
+    }
+
+    public static RouteIndex compile(List<Route> routes) {
+        Node root = new Node();
+        int firstUnindexed = routes.size();
+        for (int position = 0; position < routes.size(); position++) {
+            Map<String, Object> metadata = routes.get(position).getMetadata();
+            Object path = metadata.get(PATH_METADATA);
+            if (!(path instanceof String pattern)) {
+                firstUnindexed = Math.min(firstUnindexed, position);
+                continue;
+            }
+            Object method = metadata.get(METHOD_METADATA);
+            add(root, pattern, new Entry(position, method != null ? HttpMethod.valueOf(method.toString()) : null));
+        }
+        return new RouteIndex(root, List.copyOf(routes), firstUnindexed);
+    }
+
+    private static void add(Node root, String pattern, Entry entry) {
+        Node node = root;
+        for (String segment : segments(pattern)) {
+            if (segment.equals("**") || segment.startsWith("{*")) {
+                node.catchAll.add(entry);
+                return;
+            }
+            // Any segment with a variable or wildcard accepts every value; the route predicate narrows it
+            if (segment.indexOf('{') >= 0 || segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        node.terminal.add(entry);
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public int getFirstUnindexed() {
+        return firstUnindexed;
+    }
+
+    /** Position of the first indexed route accepting the raw path and method, or -1. */
+    public int match(String rawPath, HttpMethod method) {
+        int best = match(root, split(rawPath), 0, method, Integer.MAX_VALUE);
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    private static int match(Node node, String[] segments, int index, HttpMethod method, int best) {
+        best = first(node.catchAll, method, best);
+        if (index == segments.length) {
+            return first(node.terminal, method, best);
+        }
+        Node literal = node.literals.get(segments[index]);
+        if (literal != null) {
+            best = match(literal, segments, index + 1, method, best);
+        }
+        if (node.variable != null) {
+            best = match(node.variable, segments, index + 1, method, best);
+        }
+        return best;
+    }
+
+    private static int first(List<Entry> entries, HttpMethod method, int best) {
+        for (Entry entry : entries) {
+            if (entry.position() < best && (entry.method() == null || entry.method().equals(method))) {
+                best = entry.position();
+            }
+        }
+        return best;
+    }
+
+    private static String[] split(String path) {
+        int count = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) != '/' && (i == 0 || path.charAt(i - 1) == '/')) {
+                count++;
+            }
+        }
+        String[] segments = new String[count];
+        int n = 0;
+        int start = -1;
+        for (int i = 0; i <= path.length(); i++) {
+            boolean boundary = i == path.length() || path.charAt(i) == '/';
+            if (boundary && start >= 0) {
+                segments[n++] = path.substring(start, i);
+                start = -1;
+            } else if (!boundary && start < 0) {
+                start = i;
+            }
+        }
+        return segments;
+    }
+
+    private record Entry(int position, HttpMethod method) {
+    }
+
+    private static class Node {
+
+        final Map<String, Node> literals = new HashMap<>();
+        final List<Entry> terminal = new ArrayList<>();
+        final List<Entry> catchAll = new ArrayList<>();
+        Node variable;
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Per-route {@code gateway.route.latency} histograms split by phase. Timers are resolved once per route
+ * and then recorded with raw nanoseconds, so recording does not allocate or look up meters.
+ */
+@Component
+public class RouteMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RouteTimers> timers = new ConcurrentHashMap<>();
+    private final Function<String, RouteTimers> factory = this::create;
+
+    public RouteMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public RouteTimers forRoute(String routeId) {
+        RouteTimers routeTimers = timers.get(routeId);
+        return routeTimers != null ? routeTimers : timers.computeIfAbsent(routeId, factory);
+    }
+
+    private RouteTimers create(String routeId) {
+        return new RouteTimers(timer(routeId, "total"), timer(routeId, "internal"),
+                timer(routeId, "upstream-connect"), timer(routeId, "upstream-response"));
+    }
+
+    private Timer timer(String routeId, String phase) {
+        return Timer.builder("gateway.route.latency")
+                .description("Time spent per route, split into gateway-internal and upstream phases")
+                .tag("route", routeId)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public record RouteTimers(Timer total, Timer internal, Timer upstreamConnect, Timer upstreamResponse) {
+
+        // upstreamStart is 0 when the request never left the gateway (cache hit, 401, 429, 503)
+        public void record(long start, long upstreamStart, long requestSent, long responseReceived, long committed) {
+            total.record(committed - start, TimeUnit.NANOSECONDS);
+            if (upstreamStart == 0 || responseReceived == 0) {
+                internal.record(committed - start, TimeUnit.NANOSECONDS);
+                return;
+            }
+            upstreamConnect.record(requestSent - upstreamStart, TimeUnit.NANOSECONDS);
+            upstreamResponse.record(responseReceived - requestSent, TimeUnit.NANOSECONDS);
+            internal.record(committed - start - (responseReceived - upstreamStart), TimeUnit.NANOSECONDS);
+        }
+    }
+}
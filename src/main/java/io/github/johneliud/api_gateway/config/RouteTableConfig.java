@@ -0,0 +1,46 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * With {@code gateway.routes.source=file} the route table comes from {@code gateway.routes.file} and is
+ * reloaded on change instead of being built by {@link RouteConfig}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.routes.source", havingValue = "file")
+public class RouteTableConfig {
+
+    @Bean
+    public FileRouteDefinitionLocator fileRouteDefinitionLocator(@Value("${gateway.routes.source}") String source,
+                                                                 @Value("${gateway.routes.file}") Path file,
+                                                                 @Value("${gateway.routes.debounce:500ms}") Duration debounce,
+                                                                 Environment environment,
+                                                                 ApplicationEventPublisher publisher) {
+        requireRoutesSource("file", source);
+        return new FileRouteDefinitionLocator(file, new RouteTableLoader(environment), publisher, debounce);
+    }
+
+    @Bean
+    public RouteTableEndpoint routeTableEndpoint(FileRouteDefinitionLocator locator) {
+        return new RouteTableEndpoint(locator);
+    }
+
+    /**
+     * An AOT-processed build evaluates the {@code gateway.routes.source} conditions once, at build time.
+     * Refuse to start rather than serve the other route table when the runtime setting disagrees.
+     */
+    static void requireRoutesSource(String built, String configured) {
+        if (!built.equals(configured)) {
+            throw new IllegalStateException("Route table was built for gateway.routes.source=" + built
+                    + " but it is " + configured + "; rebuild the fast-start image with -Daot.routes.source=" + configured);
+        }
+    }
+}
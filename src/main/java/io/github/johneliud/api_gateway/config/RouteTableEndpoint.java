@@ -0,0 +1,33 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+
+import java.io.IOException;
+import java.util.Map;
+
+@Endpoint(id = "routetable")
+public class RouteTableEndpoint {
+
+    private final FileRouteDefinitionLocator locator;
+
+    public RouteTableEndpoint(FileRouteDefinitionLocator locator) {
+        this.locator = locator;
+    }
+
+    @ReadOperation
+    public Map<String, Object> table() {
+        RouteTableLoader.RouteTable table = locator.getTable();
+        return Map.of(
+                "services", table.services(),
+                "routes", table.routes().stream().map(RouteDefinition::getId).toList());
+    }
+
+    // Re-reads the file now instead of waiting for the watcher; a no-op when the content is unchanged
+    @WriteOperation
+    public Map<String, Object> reload() throws IOException {
+        return Map.of("reloaded", locator.reload());
+    }
+}
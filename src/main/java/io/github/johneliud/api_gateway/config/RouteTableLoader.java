@@ -0,0 +1,99 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.github.johneliud.api_gateway.filter.LoadBalancerFilter;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses a route table file: a {@code services} map of backend URLs and a {@code routes} list in the same
+ * shape as {@code spring.cloud.gateway.server.webflux.routes}. A route uri of {@code service:<name>} is
+ * pinned to the file's URL for that service if it has one, otherwise load balanced as {@code lb://<name>}
+ * across {@code <name>.service.url}. Single Path (+ Method) routes get {@link RouteIndex} metadata so the
+ * compiled index covers them.
+ */
+public class RouteTableLoader {
+
+    static final String SERVICE_SCHEME = "service";
+
+    private final Environment environment;
+
+    public RouteTableLoader(Environment environment) {
+        this.environment = environment;
+    }
+
+    public RouteTable load(Resource resource) throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader().load(resource.getDescription(), resource);
+        Binder binder = new Binder(ConfigurationPropertySources.from(sources),
+                new PropertySourcesPlaceholdersResolver(environment));
+        Map<String, String> services = binder.bind("services", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+        List<RouteDefinition> routes = binder.bind("routes", Bindable.listOf(RouteDefinition.class))
+                .orElse(List.of());
+
+        Set<String> ids = new HashSet<>();
+        for (RouteDefinition route : routes) {
+            if (route.getId() == null || !ids.add(route.getId())) {
+                throw new IllegalArgumentException("Route ids must be present and unique: " + route.getId());
+            }
+            if (route.getUri() == null || route.getPredicates().isEmpty()) {
+                throw new IllegalArgumentException("Route " + route.getId() + " needs a uri and at least one predicate");
+            }
+            route.setUri(resolveService(route.getUri(), services));
+            addIndexMetadata(route);
+        }
+        return new RouteTable(Map.copyOf(services), List.copyOf(routes));
+    }
+
+    private URI resolveService(URI uri, Map<String, String> services) {
+        if (!SERVICE_SCHEME.equals(uri.getScheme())) {
+            return uri;
+        }
+        String service = uri.getSchemeSpecificPart();
+        if (services.containsKey(service)) {
+            return URI.create(services.get(service));
+        }
+        if (environment.getProperty(service + ".service.url") == null) {
+            throw new IllegalArgumentException("Unknown service: " + service);
+        }
+        return URI.create(LoadBalancerFilter.SCHEME + "://" + service);
+    }
+
+    private static void addIndexMetadata(RouteDefinition route) {
+        String path = null;
+        String method = null;
+        for (PredicateDefinition predicate : route.getPredicates()) {
+            Map<String, String> args = predicate.getArgs();
+            if (predicate.getName().equals("Path") && args.size() == 1 && path == null) {
+                path = args.values().iterator().next();
+            } else if (predicate.getName().equals("Method") && args.size() == 1 && method == null) {
+                method = args.values().iterator().next();
+            } else {
+                return;
+            }
+        }
+        if (path != null) {
+            route.getMetadata().put(RouteIndex.PATH_METADATA, path);
+            if (method != null) {
+                route.getMetadata().put(RouteIndex.METHOD_METADATA, method);
+            }
+        }
+    }
+
+    public record RouteTable(Map<String, String> services, List<RouteDefinition> routes) {
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.johneliud.api_gateway.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Chooses an instance of one backend service by power of two choices: two random candidates are compared
+ * on peak-EWMA latency weighted by outstanding requests, and the cheaper one wins. A slow replica's cost
+ * rises with every slow response and every request queued on it, so it sheds traffic without a central
+ * view of load. Instances failing active health checks or ejected as outliers (consecutive failures) are
+ * skipped; if none are left, all instances are used rather than failing every request.
+ */
+public class UpstreamBalancer {
+
+    private final String service;
+    private final Settings settings;
+    private final LongSupplier nanoClock;
+    private final List<Instance> instances;
+
+    public UpstreamBalancer(String service, List<URI> uris, Settings settings) {
+        this(service, uris, settings, System::nanoTime);
+    }
+
+    UpstreamBalancer(String service, List<URI> uris, Settings settings, LongSupplier nanoClock) {
+        if (uris.isEmpty()) {
+            throw new IllegalArgumentException("Service " + service + " has no instances");
+        }
+        this.service = service;
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        List<Instance> instances = new ArrayList<>();
+        for (URI uri : uris) {
+            instances.add(new Instance(uri));
+        }
+        this.instances = List.copyOf(instances);
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public List<Instance> getInstances() {
+        return instances;
+    }
+
+    public long now() {
+        return nanoClock.getAsLong();
+    }
+
+    /** Picks an instance and counts the request as outstanding on it until {@link Instance#onResult}. */
+    public Instance choose() {
+        return choose(null);
+    }
+
+    /** Like {@link #choose()} but never returns {@code excluded}; null when there is no other instance. */
+    public Instance chooseOther(Instance excluded) {
+        return instances.size() > 1 ? choose(excluded) : null;
+    }
+
+    private Instance choose(Instance excluded) {
+        long now = nanoClock.getAsLong();
+        List<Instance> candidates = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (instance != excluded && instance.isAvailable(now)) {
+                candidates.add(instance);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (Instance instance : instances) {
+                if (instance != excluded) {
+                    candidates.add(instance);
+                }
+            }
+        }
+        Instance chosen;
+        if (candidates.size() == 1) {
+            chosen = candidates.getFirst();
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(candidates.size());
+            int second = random.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            Instance a = candidates.get(first);
+            Instance b = candidates.get(second);
+            chosen = a.cost(now) <= b.cost(now) ? a : b;
+        }
+        chosen.start();
+        return chosen;
+    }
+
+    public List<Snapshot> snapshots() {
+        long now = nanoClock.getAsLong();
+        return instances.stream().map(instance -> instance.snapshot(now)).toList();
+    }
+
+    public class Instance {
+
+        private final URI uri;
+
+        private int outstanding;
+        private double ewmaNanos;
+        private long lastSampleAt;
+        private boolean healthy = true;
+        private int failedHealthChecks;
+        private int consecutiveFailures;
+        private int ejections;
+        private boolean ejected;
+        private long ejectedUntil;
+
+        Instance(URI uri) {
+            this.uri = uri;
+        }
+
+        public URI getUri() {
+            return uri;
+        }
+
+        synchronized void start() {
+            outstanding++;
+        }
+
+        /** Ends an outstanding request with its time to response headers. */
+        public synchronized void onResult(long rttNanos, boolean failed) {
+            outstanding--;
+            long now = nanoClock.getAsLong();
+            // Peak EWMA: jump to a slower sample immediately, move towards faster ones gradually
+            double current = decayed(now);
+            ewmaNanos = rttNanos > current ? rttNanos : current + (rttNanos - current) * sampleWeight(now);
+            lastSampleAt = now;
+            if (!failed) {
+                consecutiveFailures = 0;
+                return;
+            }
+            if (++consecutiveFailures >= settings.ejectAfterFailures()) {
+                consecutiveFailures = 0;
+                ejections = Math.min(ejections + 1, settings.maxEjectionMultiplier());
+                ejected = true;
+                ejectedUntil = now + settings.baseEjectionTime().toNanos() * ejections;
+            }
+        }
+
+        // The call ended before an outcome was known (client went away); frees the slot without a sample
+        public synchronized void release() {
+            outstanding--;
+        }
+
+        public synchronized void onHealthCheck(boolean up) {
+            if (up) {
+                failedHealthChecks = 0;
+                healthy = true;
+            } else if (++failedHealthChecks >= settings.unhealthyThreshold()) {
+                healthy = false;
+            }
+        }
+
+        synchronized boolean isAvailable(long now) {
+            if (ejected) {
+                if (now - ejectedUntil < 0) {
+                    return false;
+                }
+                ejected = false;
+            }
+            if (ejections > 0 && now - ejectedUntil >= settings.baseEjectionTime().toNanos()) {
+                // Each quiet ejection period earns back one step of the growing ejection time
+                ejections--;
+                ejectedUntil = now;
+            }
+            return healthy;
+        }
+
+        synchronized double cost(long now) {
+            return (decayed(now) + 1) * (outstanding + 1);
+        }
+
+        // Latency decays towards zero while an instance gets no samples, so a recovered replica is probed again
+        private double decayed(long now) {
+            if (ewmaNanos == 0) {
+                return 0;
+            }
+            return ewmaNanos * Math.exp(-(double) (now - lastSampleAt) / settings.decay().toNanos());
+        }
+
+        private double sampleWeight(long now) {
+            return 1 - Math.exp(-(double) Math.max(now - lastSampleAt, 1) / settings.decay().toNanos());
+        }
+
+        synchronized int getOutstanding() {
+            return outstanding;
+        }
+
+        synchronized Snapshot snapshot(long now) {
+            return new Snapshot(uri.toString(), healthy, ejected && now - ejectedUntil < 0, outstanding,
+                    decayed(now) / 1_000_000.0);
+        }
+    }
+
+    public record Settings(Duration decay, int ejectAfterFailures, Duration baseEjectionTime,
+                           int maxEjectionMultiplier, int unhealthyThreshold) {
+    }
+
+    public record Snapshot(String uri, boolean healthy, boolean ejected, int outstanding, double latencyMillis) {
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One {@link UpstreamBalancer} per backend service, built from the instances listed in
+ * {@code <service>.service.url}. Routes address a service as {@code lb://<service>}. When
+ * {@code upstream.health.path} is set, every instance is probed on that path; a 5xx or no answer within
+ * the timeout counts as a failed check.
+ */
+@Component
+public class UpstreamBalancers implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamBalancers.class);
+
+    private final Map<String, UpstreamBalancer> balancers = new TreeMap<>();
+    private final String healthPath;
+    private final Duration healthInterval;
+    private final Duration healthTimeout;
+    private final HttpClient healthClient = HttpClient.create();
+
+    private Disposable healthChecks;
+
+    public UpstreamBalancers(Environment environment,
+                             @Value("${upstream.balancer.decay:10s}") Duration decay,
+                             @Value("${upstream.outlier.consecutive-failures:5}") int ejectAfterFailures,
+                             @Value("${upstream.outlier.base-ejection-time:30s}") Duration baseEjectionTime,
+                             @Value("${upstream.outlier.max-ejection-multiplier:10}") int maxEjectionMultiplier,
+                             @Value("${upstream.health.unhealthy-threshold:2}") int unhealthyThreshold,
+                             @Value("${upstream.health.path:}") String healthPath,
+                             @Value("${upstream.health.interval:10s}") Duration healthInterval,
+                             @Value("${upstream.health.timeout:2s}") Duration healthTimeout,
+                             MeterRegistry meterRegistry) {
+        UpstreamBalancer.Settings settings = new UpstreamBalancer.Settings(decay, ejectAfterFailures,
+                baseEjectionTime, maxEjectionMultiplier, unhealthyThreshold);
+        for (String service : UpstreamHttpClientConfig.SERVICES) {
+            UpstreamBalancer balancer = new UpstreamBalancer(service, UpstreamPool.instances(environment, service),
+                    settings);
+            balancers.put(service, balancer);
+            register(balancer, meterRegistry);
+        }
+        this.healthPath = healthPath;
+        this.healthInterval = healthInterval;
+        this.healthTimeout = healthTimeout;
+    }
+
+    public UpstreamBalancer find(String service) {
+        return balancers.get(service);
+    }
+
+    public Map<String, List<UpstreamBalancer.Snapshot>> snapshots() {
+        Map<String, List<UpstreamBalancer.Snapshot>> snapshots = new TreeMap<>();
+        balancers.forEach((service, balancer) -> snapshots.put(service, balancer.snapshots()));
+        return snapshots;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (healthPath.isEmpty()) {
+            return;
+        }
+        healthChecks = Flux.interval(Duration.ZERO, healthInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(balancers.values())
+                        .flatMapIterable(UpstreamBalancer::getInstances)
+                        .flatMap(this::check)
+                        .then())
+                .subscribe();
+    }
+
+    private Mono<Void> check(UpstreamBalancer.Instance instance) {
+        return healthClient.get()
+                .uri(instance.getUri().resolve(healthPath).toString())
+                .responseSingle((response, body) -> body.then(Mono.just(response.status().code() < 500)))
+                .timeout(healthTimeout)
+                .onErrorReturn(false)
+                .doOnNext(up -> {
+                    if (!up) {
+                        log.warn("Health check failed for {}", instance.getUri());
+                    }
+                    instance.onHealthCheck(up);
+                })
+                .then();
+    }
+
+    @Override
+    public void destroy() {
+        if (healthChecks != null) {
+            healthChecks.dispose();
+        }
+    }
+
+    private static void register(UpstreamBalancer balancer, MeterRegistry meterRegistry) {
+        for (UpstreamBalancer.Instance instance : balancer.getInstances()) {
+            String tag = instance.getUri().getAuthority();
+            Gauge.builder("gateway.upstream.outstanding", instance, UpstreamBalancer.Instance::getOutstanding)
+                    .tag("service", balancer.getService())
+                    .tag("instance", tag)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.upstream.available", instance, i -> i.isAvailable(balancer.now()) ? 1 : 0)
+                    .description("1 while the instance passes health checks and is not ejected as an outlier")
+                    .tag("service", balancer.getService())
+                    .tag("instance", tag)
+                    .register(meterRegistry);
+        }
+    }
+}
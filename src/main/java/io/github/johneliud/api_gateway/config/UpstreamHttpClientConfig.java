@@ -0,0 +1,92 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.github.johneliud.api_gateway.filter.RouteTiming;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.autoconfigure.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.context.ContextView;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Replaces the gateway's shared connection provider with one that sizes and evicts connections per backend.
+ * Pool gauges and acquire timers are published as {@code reactor.netty.connection.provider.*}, tagged with
+ * the backend's {@code remote.address}.
+ */
+@Configuration
+public class UpstreamHttpClientConfig {
+
+    static final List<String> SERVICES = List.of("user", "product", "media", "order");
+
+    @Bean
+    public HttpClientFactory gatewayHttpClientFactory(HttpClientProperties properties,
+                                                      ServerProperties serverProperties,
+                                                      HttpClientSslConfigurer sslConfigurer,
+                                                      List<HttpClientCustomizer> customizers,
+                                                      Environment environment) {
+        List<UpstreamPool> pools = SERVICES.stream()
+                .map(service -> UpstreamPool.forService(environment, service))
+                .toList();
+        return new HttpClientFactory(properties, serverProperties, sslConfigurer, customizers) {
+            @Override
+            protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+                UpstreamPool defaults = UpstreamPool.defaults(environment);
+                ConnectionProvider.Builder builder = ConnectionProvider.builder("gateway-upstream");
+                apply(builder, defaults);
+                for (UpstreamPool pool : pools) {
+                    for (InetSocketAddress address : pool.addresses()) {
+                        builder.forRemoteHost(address, spec -> apply(spec, pool));
+                    }
+                }
+                return builder.build();
+            }
+        };
+    }
+
+    // h2c upgrades per connection, so backends that only speak HTTP/1.1 keep working
+    @Bean
+    public HttpClientCustomizer upstreamProtocolCustomizer(@Value("${upstream.h2c.enabled:false}") boolean h2c) {
+        return httpClient -> h2c ? httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11) : httpClient;
+    }
+
+    // Stamps the route timing carried in the Reactor context by RouteTimingFilter
+    @Bean
+    public HttpClientCustomizer upstreamTimingCustomizer() {
+        return httpClient -> httpClient
+                .doOnRequest((request, connection) -> {
+                    RouteTiming timing = timing(request.currentContextView());
+                    if (timing != null) {
+                        timing.requestSent();
+                    }
+                })
+                .doOnResponse((response, connection) -> {
+                    RouteTiming timing = timing(response.currentContextView());
+                    if (timing != null) {
+                        timing.responseReceived();
+                    }
+                });
+    }
+
+    private static RouteTiming timing(ContextView context) {
+        return context.getOrDefault(RouteTiming.class, null);
+    }
+
+    private static void apply(ConnectionProvider.ConnectionPoolSpec<?> spec, UpstreamPool pool) {
+        spec.maxConnections(pool.maxConnections())
+                .pendingAcquireMaxCount(pool.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.pendingAcquireTimeout())
+                .maxIdleTime(pool.maxIdleTime())
+                .maxLifeTime(pool.maxLifeTime())
+                .evictInBackground(pool.evictionInterval())
+                .metrics(true);
+    }
+}
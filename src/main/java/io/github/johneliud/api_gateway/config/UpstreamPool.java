@@ -0,0 +1,59 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.springframework.core.env.Environment;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Connection pool settings for one backend, read from {@code upstream.pool.<service>.*} with
+ * {@code upstream.pool.default.*} as fallback. {@code <service>.service.url} lists the backend's instances,
+ * comma-separated; each instance gets its own pool with these settings, keyed by host and port, which is
+ * what Reactor Netty pools connections by.
+ */
+public record UpstreamPool(String service, List<InetSocketAddress> addresses, int maxConnections,
+                           int pendingAcquireMaxCount, Duration pendingAcquireTimeout, Duration maxIdleTime,
+                           Duration maxLifeTime, Duration evictionInterval) {
+
+    public static UpstreamPool forService(Environment environment, String service) {
+        List<InetSocketAddress> addresses = instances(environment, service).stream()
+                .map(uri -> InetSocketAddress.createUnresolved(uri.getHost(), port(uri)))
+                .toList();
+        return resolve(environment, service, addresses);
+    }
+
+    // Settings for hosts that are not one of the configured backends
+    public static UpstreamPool defaults(Environment environment) {
+        return resolve(environment, "default", List.of());
+    }
+
+    public static List<URI> instances(Environment environment, String service) {
+        return Arrays.stream(environment.getRequiredProperty(service + ".service.url").split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(URI::create)
+                .toList();
+    }
+
+    private static int port(URI uri) {
+        return uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private static UpstreamPool resolve(Environment environment, String service, List<InetSocketAddress> addresses) {
+        return new UpstreamPool(service, addresses,
+                property(environment, service, "max-connections", Integer.class, 100),
+                property(environment, service, "pending-acquire-max-count", Integer.class, 200),
+                property(environment, service, "pending-acquire-timeout", Duration.class, Duration.ofSeconds(2)),
+                property(environment, service, "max-idle-time", Duration.class, Duration.ofSeconds(30)),
+                property(environment, service, "max-life-time", Duration.class, Duration.ofMinutes(5)),
+                property(environment, service, "eviction-interval", Duration.class, Duration.ofSeconds(30)));
+    }
+
+    private static <T> T property(Environment environment, String service, String name, Class<T> type, T fallback) {
+        T value = environment.getProperty("upstream.pool." + service + "." + name, type);
+        return value != null ? value : environment.getProperty("upstream.pool.default." + name, type, fallback);
+    }
+}
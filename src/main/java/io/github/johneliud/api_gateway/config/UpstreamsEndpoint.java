@@ -0,0 +1,24 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "upstreams")
+public class UpstreamsEndpoint {
+
+    private final UpstreamBalancers balancers;
+
+    public UpstreamsEndpoint(UpstreamBalancers balancers) {
+        this.balancers = balancers;
+    }
+
+    @ReadOperation
+    public Map<String, List<UpstreamBalancer.Snapshot>> upstreams() {
+        return balancers.snapshots();
+    }
+}
@@ -0,0 +1,226 @@
+package io.github.johneliud.api_gateway.config;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the requests one principal has in flight. Each principal gets a slot in a concurrent map, so
+ * principals never contend with each other, and a permit is a compare-and-set on the slot's counter.
+ * A principal at its cap may queue up to {@code maxQueued} more requests for at most {@code maxWait};
+ * a released permit is handed straight to the oldest waiter. Beyond that the request is refused.
+ *
+ * <p>A slot whose last permit is released with nobody waiting is retired and removed from the map, so
+ * idle principals cost nothing. Retiring swaps the counter to a negative sentinel; a request that finds a
+ * retired slot starts over with a fresh one.
+ */
+public class UserQuota {
+
+    private static final int RETIRED = Integer.MIN_VALUE;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final Duration maxWait;
+
+    public UserQuota(int maxInFlight, int maxQueued, Duration maxWait) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1 but was " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+    }
+
+    /** A permit without waiting, or null if the principal is at its cap. */
+    public Permit tryAcquire(String principal) {
+        for (;;) {
+            Slot slot = slot(principal);
+            int inFlight = slot.tryIncrement();
+            if (inFlight == RETIRED) {
+                slots.remove(principal, slot);
+                continue;
+            }
+            return inFlight < maxInFlight ? slot : null;
+        }
+    }
+
+    /**
+     * For use after {@link #tryAcquire} came back empty: a permit once one is free, taken on subscribe and
+     * queued behind the principal's other waiters. Empty if the queue is full or no permit came within
+     * {@code maxWait}.
+     */
+    public Mono<Permit> await(String principal) {
+        if (maxQueued <= 0) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> enqueue(principal));
+    }
+
+    /** Principals holding or waiting for a permit. */
+    public int principals() {
+        return slots.size();
+    }
+
+    public int inFlight(String principal) {
+        Slot slot = slots.get(principal);
+        return slot == null ? 0 : Math.max(0, slot.inFlight.get());
+    }
+
+    private Slot slot(String principal) {
+        Slot slot = slots.get(principal);
+        return slot != null ? slot : slots.computeIfAbsent(principal, Slot::new);
+    }
+
+    private Mono<Permit> enqueue(String principal) {
+        for (;;) {
+            Slot slot = slot(principal);
+            // Counted before the counter is read again, so a slot with a waiter on its way is never retired
+            if (slot.queued.incrementAndGet() > maxQueued) {
+                slot.queued.decrementAndGet();
+                return Mono.empty();
+            }
+            int inFlight = slot.tryIncrement();
+            if (inFlight == RETIRED) {
+                slot.queued.decrementAndGet();
+                slots.remove(principal, slot);
+                continue;
+            }
+            if (inFlight < maxInFlight) {
+                slot.queued.decrementAndGet();
+                return Mono.just(slot);
+            }
+            return Mono.create(sink -> {
+                Waiter waiter = new Waiter(slot, sink);
+                waiter.expireAfter(maxWait);
+                sink.onCancel(waiter::cancel);
+                slot.waiters.add(waiter);
+                // A permit released between the check above and the add found no one to hand to
+                slot.handOff();
+            });
+        }
+    }
+
+    /** Released once, when the request finishes. */
+    public interface Permit {
+
+        void release();
+    }
+
+    private final class Slot implements Permit {
+
+        private final String principal;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+        Slot(String principal) {
+            this.principal = principal;
+        }
+
+        // The count before the attempt: below maxInFlight means a permit was taken
+        int tryIncrement() {
+            for (;;) {
+                int current = inFlight.get();
+                if (current == RETIRED || current >= maxInFlight) {
+                    return current;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return current;
+                }
+            }
+        }
+
+        @Override
+        public void release() {
+            Waiter waiter;
+            while ((waiter = waiters.poll()) != null) {
+                if (waiter.grant()) {
+                    return;
+                }
+            }
+            if (inFlight.decrementAndGet() == 0 && queued.get() == 0 && inFlight.compareAndSet(0, RETIRED)) {
+                slots.remove(principal, this);
+            }
+        }
+
+        // Takes a free permit on behalf of the oldest waiter, for as long as both exist
+        void handOff() {
+            while (!waiters.isEmpty()) {
+                int current = tryIncrement();
+                if (current == RETIRED || current >= maxInFlight) {
+                    return;
+                }
+                Waiter waiter;
+                do {
+                    waiter = waiters.poll();
+                } while (waiter != null && !waiter.grant());
+                if (waiter == null) {
+                    release();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final Slot slot;
+        private final MonoSink<Permit> sink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile Disposable deadline;
+
+        Waiter(Slot slot, MonoSink<Permit> sink) {
+            this.slot = slot;
+            this.sink = sink;
+        }
+
+        // The deadline is decided by the same state change as a grant, so a permit is either delivered or
+        // never taken; an operator timeout outside could drop a permit granted as it fired
+        void expireAfter(Duration maxWait) {
+            deadline = Schedulers.parallel().schedule(this::expire, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        boolean grant() {
+            if (!state.compareAndSet(WAITING, GRANTED)) {
+                return false;
+            }
+            deadline.dispose();
+            slot.queued.decrementAndGet();
+            sink.success(slot);
+            return true;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                slot.queued.decrementAndGet();
+                slot.waiters.remove(this);
+                sink.success();
+            }
+        }
+
+        void cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                deadline.dispose();
+                slot.queued.decrementAndGet();
+                slot.waiters.remove(this);
+            } else if (state.get() == GRANTED) {
+                // Granted as the wait timed out; the subscriber is gone, so the permit goes back
+                slot.release();
+            }
+        }
+    }
+}
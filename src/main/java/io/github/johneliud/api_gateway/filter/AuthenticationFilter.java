@@ -1,68 +1,93 @@
 package io.github.johneliud.api_gateway.filter;
 
-import io.github.johneliud.api_gateway.util.JwtUtil;
-import io.jsonwebtoken.Claims;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import io.github.johneliud.api_gateway.config.AccessLog;
+import io.github.johneliud.api_gateway.config.RevocationList;
+import io.github.johneliud.api_gateway.util.VerifiedToken;
+import io.github.johneliud.api_gateway.util.VerifiedTokenCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
-import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class AuthenticationFilter extends AbstractGatewayFilterFactory<AuthenticationFilter.Config> {
 
-    private static final Logger log = LoggerFactory.getLogger(AuthenticationFilter.class);
+    private final VerifiedTokenCache tokenCache;
+    private final RevocationList revocations;
+    private final Timer filterTimer;
+    private final Counter unauthorized;
 
-    private final JwtUtil jwtUtil;
-
-    public AuthenticationFilter(JwtUtil jwtUtil) {
+    public AuthenticationFilter(VerifiedTokenCache tokenCache, RevocationList revocations, MeterRegistry meterRegistry) {
         super(Config.class);
-        this.jwtUtil = jwtUtil;
+        this.tokenCache = tokenCache;
+        this.revocations = revocations;
+        this.filterTimer = Timer.builder("gateway.filter.time")
+                .description("Time spent inside the filter before handing off to the rest of the chain")
+                .tag("filter", "authentication")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.unauthorized = Counter.builder("gateway.requests.rejected")
+                .tag("filter", "authentication")
+                .tag("status", "401")
+                .register(meterRegistry);
     }
 
     @Override
     public GatewayFilter apply(Config config) {
         return (exchange, chain) -> {
-            String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
-
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                return onError(exchange, "Missing or invalid Authorization header", HttpStatus.UNAUTHORIZED);
+            long start = System.nanoTime();
+            try {
+                return authenticate(exchange, chain);
+            } finally {
+                filterTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             }
+        };
+    }
 
-            try {
-                String token = authHeader.substring(7);
-                Claims claims = jwtUtil.validateToken(token);
+    private Mono<Void> authenticate(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
 
-                ServerWebExchange mutatedExchange = exchange.mutate()
-                        .request(exchange.getRequest().mutate()
-                                .header("X-User-Id", jwtUtil.getUserId(claims))
-                                .header("X-User-Role", jwtUtil.getRole(claims))
-                                .build())
-                        .build();
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            exchange.getAttributes().put(AccessLog.AUTH_FAILURE_ATTR, "missing_token");
+            return onError(exchange, Rejection.MISSING_TOKEN);
+        }
 
-                return chain.filter(mutatedExchange);
-            } catch (Exception e) {
-                log.error("JWT validation failed: {}", e.getMessage());
-                return onError(exchange, "Invalid or expired token", HttpStatus.UNAUTHORIZED);
+        try {
+            String token = authHeader.substring(7);
+            VerifiedToken verified = tokenCache.verify(token);
+            // Checked on every request, not cached with the token, so a revocation applies at once
+            if (revocations.isRevoked(verified)) {
+                exchange.getAttributes().put(AccessLog.AUTH_FAILURE_ATTR, "revoked");
+                return onError(exchange, Rejection.INVALID_TOKEN);
             }
-        };
+            exchange.getAttributes().put(AccessLog.PRINCIPAL_ATTR, verified.userId());
+
+            ServerWebExchange mutatedExchange = exchange.mutate()
+                    .request(exchange.getRequest().mutate()
+                            .header("X-User-Id", verified.userId())
+                            .header("X-User-Role", verified.role())
+                            .build())
+                    .build();
+
+            return chain.filter(mutatedExchange);
+        } catch (Exception e) {
+            // Recorded in the access log by AccessLogFilter rather than logged here, on the request thread
+            exchange.getAttributes().put(AccessLog.AUTH_FAILURE_ATTR, e.getClass().getSimpleName());
+            return onError(exchange, Rejection.INVALID_TOKEN);
+        }
     }
 
-    private Mono<Void> onError(ServerWebExchange exchange, String message, HttpStatus status) {
-        exchange.getResponse().setStatusCode(status);
-        exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
-        String body = "{\"error\":\"" + message + "\"}";
-        DataBuffer buffer = exchange.getResponse().bufferFactory()
-                .wrap(body.getBytes(StandardCharsets.UTF_8));
-        return exchange.getResponse().writeWith(Mono.just(buffer));
+    private Mono<Void> onError(ServerWebExchange exchange, Rejection rejection) {
+        unauthorized.increment();
+        return rejection.writeTo(exchange);
     }
 
     public static class Config {}
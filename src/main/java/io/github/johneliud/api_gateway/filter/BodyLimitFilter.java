@@ -0,0 +1,275 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Caps the request body of upload routes at {@code maxBytes} and cuts off uploads that average less than
+ * {@code minBytesPerSecond} once {@code rateGrace} has passed. A {@code Content-Length} over the limit is
+ * rejected with 413 before the rest of the chain runs, so no permit is taken and no upstream connection is
+ * opened. Bodies without a length, or that lie about it, are counted chunk by chunk as they stream upstream
+ * and fail with 413 or 408 at the first byte over the limit or the first missed deadline; nothing is buffered.
+ * The upload rate is measured only while the upstream is requesting body, so a slow backend does not
+ * turn into a 408 for the client.
+ *
+ * <p>The rejection closes the connection, since the rest of the body is never read.
+ */
+@Component
+public class BodyLimitFilter extends AbstractGatewayFilterFactory<BodyLimitFilter.Config> {
+
+    private final Counter tooLarge;
+    private final Counter tooSlow;
+
+    public BodyLimitFilter(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.tooLarge = Counter.builder("gateway.requests.rejected")
+                .tag("filter", "body-limit")
+                .tag("status", "413")
+                .register(meterRegistry);
+        this.tooSlow = Counter.builder("gateway.requests.rejected")
+                .tag("filter", "body-limit")
+                .tag("status", "408")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxBytes", "minBytesPerSecond", "rateGrace");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            if (exchange.getRequest().getHeaders().getContentLength() > config.getMaxBytes()) {
+                return reject(exchange, Rejection.PAYLOAD_TOO_LARGE);
+            }
+            LimitedRequest limited = new LimitedRequest(exchange.getRequest(), config);
+            return chain.filter(exchange.mutate().request(limited).build())
+                    .onErrorResume(e -> {
+                        Rejection violation = limited.violation;
+                        if (violation == null || exchange.getResponse().isCommitted()) {
+                            return Mono.error(e);
+                        }
+                        return reject(exchange, violation);
+                    });
+        };
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, Rejection rejection) {
+        (rejection == Rejection.PAYLOAD_TOO_LARGE ? tooLarge : tooSlow).increment();
+        exchange.getResponse().getHeaders().set(HttpHeaders.CONNECTION, "close");
+        return rejection.writeTo(exchange);
+    }
+
+    /** True if {@code error}, or one of its causes, is this filter cutting off an upload. */
+    static boolean isBodyLimitError(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof BodyLimitExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static final class BodyLimitExceededException extends RuntimeException {
+
+        BodyLimitExceededException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final class LimitedRequest extends ServerHttpRequestDecorator {
+
+        private final long maxBytes;
+        private final long minBytesPerSecond;
+        private final long graceNanos;
+
+        // Set before the body errors, so the filter can tell its own cut-off from an upstream failure
+        private volatile Rejection violation;
+
+        LimitedRequest(ServerHttpRequest delegate, Config config) {
+            super(delegate);
+            this.maxBytes = config.getMaxBytes();
+            this.minBytesPerSecond = config.getMinBytesPerSecond();
+            this.graceNanos = config.getRateGrace().toNanos();
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return Flux.defer(() -> {
+                UploadClock clock = new UploadClock();
+                Flux<DataBuffer> counted = super.getBody().handle((buffer, sink) -> {
+                    long received = clock.receive(buffer.readableByteCount());
+                    if (received > maxBytes) {
+                        DataBufferUtils.release(buffer);
+                        violation = Rejection.PAYLOAD_TOO_LARGE;
+                        sink.error(new BodyLimitExceededException("Request body over " + maxBytes + " bytes"));
+                        return;
+                    }
+                    sink.next(buffer);
+                });
+                if (minBytesPerSecond <= 0) {
+                    return counted;
+                }
+                // Demand is tracked below the timeout, where the upstream's requests arrive
+                return counted
+                        .timeout(clock.nextDeadline(), buffer -> clock.nextDeadline())
+                        .doOnRequest(clock::requested)
+                        .doOnNext(buffer -> clock.delivered())
+                        .onErrorMap(TimeoutException.class, e -> {
+                            violation = Rejection.UPLOAD_TOO_SLOW;
+                            return new BodyLimitExceededException(
+                                    "Request body slower than " + minBytesPerSecond + " bytes/s");
+                        });
+            });
+        }
+
+        /**
+         * Measures an upload's time only while the upstream is asking for more of it. A backend that reads
+         * slowly stops requesting, which pauses the clock, so its backpressure is never charged to the client.
+         * The next chunk is due once the average over that time would drop below {@code minBytesPerSecond},
+         * and never before {@code rateGrace} of it has passed.
+         */
+        private final class UploadClock {
+
+            private long received;
+            private long demand;
+            private long activeNanos;
+            private long activeSince = -1;
+            private MonoSink<Long> waiting;
+            private long dueNanos;
+            private Disposable timer;
+
+            synchronized long receive(int bytes) {
+                return received += bytes;
+            }
+
+            synchronized void requested(long n) {
+                if (n <= 0) {
+                    return;
+                }
+                if (demand == 0) {
+                    activeSince = System.nanoTime();
+                    schedule();
+                }
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+
+            synchronized void delivered() {
+                if (demand == Long.MAX_VALUE || --demand > 0) {
+                    return;
+                }
+                activeNanos += System.nanoTime() - activeSince;
+                activeSince = -1;
+                cancelTimer();
+            }
+
+            // Completes when the next chunk is overdue; cancelled by the timeout operator when the chunk arrives
+            Mono<Long> nextDeadline() {
+                return Mono.create(sink -> {
+                    synchronized (this) {
+                        waiting = sink;
+                        dueNanos = Math.max(graceNanos, TimeUnit.SECONDS.toNanos(received) / minBytesPerSecond);
+                        schedule();
+                    }
+                    sink.onDispose(() -> disarm(sink));
+                });
+            }
+
+            private synchronized void disarm(MonoSink<Long> sink) {
+                if (waiting == sink) {
+                    waiting = null;
+                    cancelTimer();
+                }
+            }
+
+            // Runs with the lock held. Paused while there is no demand; requested() starts it again
+            private void schedule() {
+                cancelTimer();
+                if (waiting == null || activeSince < 0) {
+                    return;
+                }
+                long remaining = dueNanos - (activeNanos + System.nanoTime() - activeSince);
+                timer = Schedulers.parallel().schedule(this::check, Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            }
+
+            private void check() {
+                MonoSink<Long> overdue;
+                synchronized (this) {
+                    timer = null;
+                    if (waiting == null || activeSince < 0) {
+                        return;
+                    }
+                    if (activeNanos + System.nanoTime() - activeSince < dueNanos) {
+                        schedule();
+                        return;
+                    }
+                    overdue = waiting;
+                    waiting = null;
+                }
+                overdue.success(0L);
+            }
+
+            private void cancelTimer() {
+                if (timer != null) {
+                    timer.dispose();
+                    timer = null;
+                }
+            }
+        }
+    }
+
+    public static class Config {
+
+        private long maxBytes = Long.MAX_VALUE;
+        private long minBytesPerSecond;
+        private Duration rateGrace = Duration.ofSeconds(10);
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public Config setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        public long getMinBytesPerSecond() {
+            return minBytesPerSecond;
+        }
+
+        // 0 turns the upload rate check off
+        public Config setMinBytesPerSecond(long minBytesPerSecond) {
+            this.minBytesPerSecond = minBytesPerSecond;
+            return this;
+        }
+
+        public Duration getRateGrace() {
+            return rateGrace;
+        }
+
+        public Config setRateGrace(Duration rateGrace) {
+            this.rateGrace = rateGrace;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.johneliud.api_gateway.filter;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Copies readable bytes without consuming them so the original buffers still stream to the client
+class BodyRecorder {
+
+    private final long limit;
+    private byte[] bytes;
+    private int size;
+    private boolean overflowed;
+
+    BodyRecorder(long contentLength, long limit) {
+        this.limit = limit;
+        this.bytes = new byte[(int) Math.max(0, Math.min(contentLength >= 0 ? contentLength : 8192, limit))];
+    }
+
+    void append(DataBuffer buffer) {
+        if (overflowed) {
+            return;
+        }
+        int length = buffer.readableByteCount();
+        if (size + (long) length > limit) {
+            overflowed = true;
+            bytes = null;
+            return;
+        }
+        if (size + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int) Math.min(limit, Math.max(size + length, bytes.length * 2L)));
+        }
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                ByteBuffer chunk = iterator.next();
+                int chunkLength = chunk.remaining();
+                chunk.get(bytes, size, chunkLength);
+                size += chunkLength;
+            }
+        }
+    }
+
+    boolean isOverflowed() {
+        return overflowed;
+    }
+
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(size == bytes.length ? bytes : Arrays.copyOf(bytes, size));
+    }
+}
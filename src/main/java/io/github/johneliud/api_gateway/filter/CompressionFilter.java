@@ -0,0 +1,263 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.CachedResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gzip-encodes text and JSON responses for clients that accept it. Bodies already carrying a
+ * {@code Content-Encoding}, non-text media types (images, video, archives are compressed already), and
+ * bodies below {@code minBytes} pass through untouched. Upstream bodies are compressed chunk by chunk as
+ * they stream; a {@link ResponseCacheFilter} hit is compressed once and the result kept with the entry.
+ *
+ * <p>Only gzip is offered: the JDK has no brotli or zstd encoder and the pure-Java ports are decode-only.
+ */
+@Component
+public class CompressionFilter extends AbstractGatewayFilterFactory<CompressionFilter.Config> {
+
+    static final String GZIP = "gzip";
+
+    private final DeflaterPool deflaters;
+    private final MeterRegistry meterRegistry;
+
+    public CompressionFilter(@Value("${response.compression.level:5}") int level,
+                             @Value("${response.compression.pool-size:64}") int poolSize,
+                             MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.deflaters = new DeflaterPool(level, poolSize);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("minBytes");
+    }
+
+    // Wraps the response outside ResponseCacheFilter, so the cache stores and coalesces identity bodies
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Registered once per route this filter serves, then only incremented
+        Map<String, ByteCounters> counters = new ConcurrentHashMap<>();
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (HttpMethod.HEAD.equals(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "unknown";
+            ByteCounters routeCounters = counters.get(routeId);
+            if (routeCounters == null) {
+                routeCounters = counters.computeIfAbsent(routeId, this::counters);
+            }
+            boolean gzip = acceptsGzip(exchange.getRequest().getHeaders().get(HttpHeaders.ACCEPT_ENCODING));
+            ServerHttpResponse compressing = new CompressingResponse(exchange, gzip, config.getMinBytes(),
+                    routeCounters);
+            return chain.filter(exchange.mutate().response(compressing).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2);
+    }
+
+    private ByteCounters counters(String routeId) {
+        return new ByteCounters(counter(routeId, "identity"), counter(routeId, "encoded"));
+    }
+
+    private Counter counter(String routeId, String stage) {
+        return Counter.builder("gateway.compression.bytes")
+                .description("Bytes of gzipped responses before (identity) and after (encoded) compression")
+                .baseUnit("bytes")
+                .tag("route", routeId)
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    private record ByteCounters(Counter identity, Counter encoded) {
+    }
+
+    // gzip is acceptable if listed, or covered by "*", with a non-zero q-value
+    static boolean acceptsGzip(List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String header : acceptEncoding) {
+            for (String element : header.split(",")) {
+                String[] parts = element.split(";");
+                String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+                double q = quality(parts);
+                if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                    gzip = q;
+                } else if (coding.equals("*")) {
+                    any = q;
+                }
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    static boolean isCompressible(MediaType contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.getType();
+        String subtype = contentType.getSubtype().toLowerCase(Locale.ROOT);
+        if (type.equalsIgnoreCase("text")) {
+            return !subtype.equals("event-stream");
+        }
+        return type.equalsIgnoreCase("application")
+                && (subtype.equals("json") || subtype.endsWith("+json") || subtype.equals("xml")
+                || subtype.endsWith("+xml") || subtype.equals("javascript"));
+    }
+
+    private class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final boolean gzip;
+        private final long minBytes;
+        private final ByteCounters counters;
+
+        CompressingResponse(ServerWebExchange exchange, boolean gzip, long minBytes, ByteCounters counters) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.gzip = gzip;
+            this.minBytes = minBytes;
+            this.counters = counters;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            if (!isCompressible(headers.getContentType())
+                    || headers.containsHeader(HttpHeaders.CONTENT_ENCODING)
+                    || headers.containsHeader(HttpHeaders.CONTENT_RANGE)) {
+                return super.writeWith(body);
+            }
+            if (headers.getVary().stream().noneMatch(HttpHeaders.ACCEPT_ENCODING::equalsIgnoreCase)) {
+                headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            long contentLength = headers.getContentLength();
+            String cacheControl = headers.getCacheControl();
+            if (!gzip || !hasBody(getStatusCode()) || (contentLength >= 0 && contentLength < minBytes)
+                    || (cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-transform"))) {
+                return super.writeWith(body);
+            }
+
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            // The encoded bytes differ from the upstream representation, so a strong validator no longer applies
+            String etag = headers.getETag();
+            if (etag != null && !etag.startsWith("W/")) {
+                headers.setETag("W/" + etag);
+            }
+
+            CachedResponse cached = exchange.getAttribute(ResponseCacheFilter.CACHED_RESPONSE_ATTR);
+            if (cached != null) {
+                ByteBuffer encoded = cached.encoded(GZIP, identity -> GzipEncoder.encode(identity, deflaters));
+                headers.setContentLength(encoded.remaining());
+                count(cached.size(), encoded.remaining());
+                return Flux.from(body)
+                        .doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(() -> super.writeWith(Mono.just(bufferFactory().wrap(encoded)))));
+            }
+            return super.writeWith(compress(Flux.from(body)));
+        }
+
+        // The deflater is borrowed on subscribe and returned on completion, error or cancel
+        private Flux<DataBuffer> compress(Flux<? extends DataBuffer> body) {
+            DataBufferFactory factory = bufferFactory();
+            return Flux.defer(() -> {
+                GzipEncoder encoder = new GzipEncoder(deflaters);
+                long[] bytes = new long[2];
+                return body
+                        .concatMapIterable(buffer -> {
+                            List<DataBuffer> out = new ArrayList<>(1);
+                            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                                while (iterator.hasNext()) {
+                                    ByteBuffer chunk = iterator.next();
+                                    bytes[0] += chunk.remaining();
+                                    encoder.write(chunk, encoded -> out.add(factory.wrap(encoded)));
+                                }
+                            } finally {
+                                DataBufferUtils.release(buffer);
+                            }
+                            return out;
+                        })
+                        .concatWith(Flux.defer(() -> {
+                            List<DataBuffer> out = new ArrayList<>(1);
+                            encoder.finish(encoded -> out.add(factory.wrap(encoded)));
+                            return Flux.fromIterable(out);
+                        }))
+                        .doOnNext(buffer -> bytes[1] += buffer.readableByteCount())
+                        .doOnComplete(() -> count(bytes[0], bytes[1]))
+                        .doFinally(signal -> encoder.close());
+            });
+        }
+
+        private boolean hasBody(HttpStatusCode status) {
+            return status == null || (status.is2xxSuccessful() && status.value() != 204 && status.value() != 206);
+        }
+
+        private void count(long identityBytes, long encodedBytes) {
+            counters.identity().increment(identityBytes);
+            counters.encoded().increment(encodedBytes);
+        }
+    }
+
+    public static class Config {
+
+        private long minBytes = 1024;
+
+        public long getMinBytes() {
+            return minBytes;
+        }
+
+        // Smaller bodies gain little and cost a deflater; chunked bodies of unknown length are always compressed
+        public Config setMinBytes(long minBytes) {
+            this.minBytes = minBytes;
+            return this;
+        }
+    }
+}
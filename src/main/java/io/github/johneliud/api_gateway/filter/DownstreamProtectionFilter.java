@@ -0,0 +1,96 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.DownstreamGuard;
+import io.github.johneliud.api_gateway.config.DownstreamGuards;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fails fast with 503 while the backend's circuit is open or its adaptive concurrency limit is reached.
+ * Latency is sampled when the response is committed (time to headers), so long media downloads do not
+ * count as slow calls; 5xx responses and errors count as failures.
+ */
+@Component
+public class DownstreamProtectionFilter extends AbstractGatewayFilterFactory<DownstreamProtectionFilter.Config> {
+
+    private final DownstreamGuards guards;
+
+    public DownstreamProtectionFilter(DownstreamGuards guards) {
+        super(Config.class);
+        this.guards = guards;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("service");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String service = config.getService();
+        DownstreamGuard guard = guards.get(service);
+        return (exchange, chain) -> {
+            DownstreamGuard.Decision decision = guard.tryAcquire();
+            if (decision != DownstreamGuard.Decision.ACCEPTED) {
+                // Counted here and recorded by AccessLogFilter; circuit changes are logged by DownstreamGuards
+                guards.recordRejected(service, decision);
+                return onRejected(exchange, decision);
+            }
+
+            long start = guard.now();
+            AtomicBoolean done = new AtomicBoolean();
+            exchange.getResponse().beforeCommit(() -> {
+                if (done.compareAndSet(false, true)) {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    guard.onResult(guard.now() - start, status != null && status.is5xxServerError());
+                }
+                return Mono.empty();
+            });
+            return chain.filter(exchange)
+                    .doOnError(e -> {
+                        if (done.compareAndSet(false, true)) {
+                            // An upload cut off by BodyLimitFilter is the client's fault, not the backend's
+                            if (BodyLimitFilter.isBodyLimitError(e)) {
+                                guard.release();
+                            } else {
+                                guard.onResult(guard.now() - start, true);
+                            }
+                        }
+                    })
+                    .doFinally(signal -> {
+                        if (done.compareAndSet(false, true)) {
+                            guard.release();
+                        }
+                    });
+        };
+    }
+
+    private Mono<Void> onRejected(ServerWebExchange exchange, DownstreamGuard.Decision decision) {
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return decision == DownstreamGuard.Decision.CIRCUIT_OPEN
+                ? Rejection.CIRCUIT_OPEN.writeTo(exchange)
+                : Rejection.OVERLOADED.writeTo(exchange);
+    }
+
+    public static class Config {
+
+        private String service = "default";
+
+        public String getService() {
+            return service;
+        }
+
+        public Config setService(String service) {
+            this.service = service;
+            return this;
+        }
+    }
+}
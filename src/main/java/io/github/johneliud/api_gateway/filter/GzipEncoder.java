@@ -0,0 +1,100 @@
+package io.github.johneliud.api_gateway.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streaming gzip (RFC 1952) framing around a pooled raw deflater. Output is handed out in chunks of at
+ * most {@link #CHUNK_SIZE} bytes as it is produced, so memory per response stays bounded whatever the
+ * body size. Methods are synchronized because a cancelled response can release the deflater while the
+ * last chunk is still being encoded on another thread.
+ */
+class GzipEncoder implements AutoCloseable {
+
+    static final int CHUNK_SIZE = 8192;
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final DeflaterPool pool;
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[CHUNK_SIZE];
+    private Deflater deflater;
+    private boolean headerWritten;
+    private long inputBytes;
+
+    GzipEncoder(DeflaterPool pool) {
+        this.pool = pool;
+        this.deflater = pool.borrow();
+    }
+
+    synchronized void write(ByteBuffer input, Consumer<byte[]> sink) {
+        if (deflater == null || !input.hasRemaining()) {
+            return;
+        }
+        writeHeader(sink);
+        inputBytes += input.remaining();
+        crc.update(input.duplicate());
+        deflater.setInput(input);
+        while (!deflater.needsInput()) {
+            drain(sink);
+        }
+    }
+
+    synchronized void finish(Consumer<byte[]> sink) {
+        if (deflater == null) {
+            return;
+        }
+        writeHeader(sink);
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain(sink);
+        }
+        byte[] trailer = new byte[8];
+        writeIntLE(trailer, 0, (int) crc.getValue());
+        writeIntLE(trailer, 4, (int) inputBytes);
+        sink.accept(trailer);
+        close();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (deflater != null) {
+            pool.release(deflater);
+            deflater = null;
+        }
+    }
+
+    static byte[] encode(ByteBuffer body, DeflaterPool pool) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.remaining() / 4));
+        try (GzipEncoder encoder = new GzipEncoder(pool)) {
+            encoder.write(body.duplicate(), out::writeBytes);
+            encoder.finish(out::writeBytes);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeHeader(Consumer<byte[]> sink) {
+        if (!headerWritten) {
+            headerWritten = true;
+            sink.accept(HEADER.clone());
+        }
+    }
+
+    private void drain(Consumer<byte[]> sink) {
+        int length = deflater.deflate(scratch, 0, scratch.length, Deflater.NO_FLUSH);
+        if (length > 0) {
+            sink.accept(Arrays.copyOf(scratch, length));
+        }
+    }
+
+    private static void writeIntLE(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >>> 8);
+        target[offset + 2] = (byte) (value >>> 16);
+        target[offset + 3] = (byte) (value >>> 24);
+    }
+}
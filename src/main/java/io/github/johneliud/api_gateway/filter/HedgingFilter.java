@@ -0,0 +1,348 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.LatencyWindow;
+import io.github.johneliud.api_gateway.config.RetryBudget;
+import io.github.johneliud.api_gateway.config.UpstreamBalancer;
+import io.github.johneliud.api_gateway.config.UpstreamBalancers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Hedged and retried upstream calls for idempotent GET routes addressed as {@code lb://<service>}. If the
+ * first instance has not answered within the route's recent latency percentile, the same request goes to
+ * another instance; the first good response wins and the other call is cancelled. A connect failure or
+ * 5xx from the first attempt is retried on another instance right away instead. Hedges and retries both
+ * draw on the route's {@link RetryBudget}, so they never add more than a fixed share of upstream load.
+ *
+ * <p>Both attempts are made here with the gateway's HTTP client and buffered, so this must be the route's
+ * last filter and is only suitable for small responses.
+ */
+@Component
+public class HedgingFilter extends AbstractGatewayFilterFactory<HedgingFilter.Config> {
+
+    private static final int WINDOW_SIZE = 1000;
+    private static final int MIN_SAMPLES = 50;
+
+    private final HttpClient httpClient;
+    private final Supplier<List<HttpHeadersFilter>> headersFilters;
+    private final UpstreamBalancers balancers;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public HedgingFilter(HttpClient httpClient, HttpClientProperties properties,
+                         ObjectProvider<List<HttpHeadersFilter>> headersFilters, UpstreamBalancers balancers,
+                         MeterRegistry meterRegistry) {
+        this(httpClient, properties.getResponseTimeout(), () -> headersFilters.getIfAvailable(List::of), balancers,
+                meterRegistry);
+    }
+
+    HedgingFilter(HttpClient httpClient, Duration responseTimeout, Supplier<List<HttpHeadersFilter>> headersFilters,
+                  UpstreamBalancers balancers, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.httpClient = responseTimeout != null ? httpClient.responseTimeout(responseTimeout) : httpClient;
+        this.headersFilters = headersFilters;
+        this.balancers = balancers;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("percentile", "budgetRatio");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        LatencyWindow latencies = new LatencyWindow(WINDOW_SIZE, config.getPercentile(), MIN_SAMPLES);
+        RetryBudget budget = new RetryBudget(config.getBudgetRatio(), config.getBudgetBurst());
+        // Registered once per route this filter serves, then only incremented
+        Map<String, HedgeCounters> counters = new ConcurrentHashMap<>();
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            UpstreamBalancer balancer = route != null && LoadBalancerFilter.SCHEME.equals(route.getUri().getScheme())
+                    ? balancers.find(route.getUri().getHost())
+                    : null;
+            if (balancer == null || balancer.getInstances().size() < 2
+                    || exchange.getRequest().getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+            budget.onRequest();
+            RouteTiming timing = RouteTiming.of(exchange);
+            if (timing != null) {
+                timing.upstreamStart = System.nanoTime();
+            }
+            HedgeCounters routeCounters = counters.get(route.getId());
+            if (routeCounters == null) {
+                routeCounters = counters.computeIfAbsent(route.getId(), this::counters);
+            }
+            return new Call(exchange, routeCounters, balancer, config, latencies, budget).run()
+                    .flatMap(upstream -> write(exchange, upstream));
+        };
+    }
+
+    private HedgeCounters counters(String routeId) {
+        return new HedgeCounters(
+                counter(routeId, "gateway.hedge.sent", "reason", "hedge"),
+                counter(routeId, "gateway.hedge.sent", "reason", "retry"),
+                counter(routeId, "gateway.hedge.budget.exhausted", "reason", "hedge"),
+                counter(routeId, "gateway.hedge.budget.exhausted", "reason", "retry"),
+                counter(routeId, "gateway.hedge.wins", "winner", "first"),
+                counter(routeId, "gateway.hedge.wins", "winner", "second"));
+    }
+
+    private Counter counter(String routeId, String name, String tag, String value) {
+        return Counter.builder(name)
+                .tag("route", routeId)
+                .tag(tag, value)
+                .register(meterRegistry);
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, Upstream upstream) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatusCode.valueOf(upstream.status()));
+        HttpHeaders headers = HttpHeadersFilter.filter(headersFilters.get(), upstream.headers(), exchange,
+                HttpHeadersFilter.Type.RESPONSE);
+        response.getHeaders().putAll(headers);
+        response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        response.getHeaders().setContentLength(upstream.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(upstream.body())));
+    }
+
+    private record Upstream(int status, HttpHeaders headers, byte[] body) {
+
+        boolean failed() {
+            return status >= 500;
+        }
+    }
+
+    private record Attempt(Upstream upstream, boolean second) {
+    }
+
+    private record HedgeCounters(Counter hedgesSent, Counter retriesSent, Counter hedgesExhausted,
+                                 Counter retriesExhausted, Counter firstWins, Counter secondWins) {
+    }
+
+    // A 5xx from one attempt; kept so it can still be returned if the other attempt fails too
+    private static final class UpstreamFailure extends RuntimeException {
+
+        private final transient Upstream upstream;
+
+        UpstreamFailure(Upstream upstream) {
+            super(null, null, false, false);
+            this.upstream = upstream;
+        }
+    }
+
+    /** One client request: the first attempt plus at most one hedge or retry. */
+    private final class Call {
+
+        private final ServerWebExchange exchange;
+        private final HedgeCounters counters;
+        private final UpstreamBalancer balancer;
+        private final Config config;
+        private final LatencyWindow latencies;
+        private final RetryBudget budget;
+        private final HttpHeaders requestHeaders;
+        private final AtomicBoolean secondClaimed = new AtomicBoolean();
+        private final AtomicReference<Throwable> lastError = new AtomicReference<>();
+
+        private volatile UpstreamBalancer.Instance first;
+        private volatile boolean secondSent;
+
+        Call(ServerWebExchange exchange, HedgeCounters counters, UpstreamBalancer balancer, Config config,
+             LatencyWindow latencies, RetryBudget budget) {
+            this.exchange = exchange;
+            this.counters = counters;
+            this.balancer = balancer;
+            this.config = config;
+            this.latencies = latencies;
+            this.budget = budget;
+            this.requestHeaders = new HttpHeaders();
+            this.requestHeaders.putAll(HttpHeadersFilter.filterRequest(headersFilters.get(), exchange));
+            this.requestHeaders.remove(HttpHeaders.HOST);
+        }
+
+        Mono<Upstream> run() {
+            Sinks.Empty<Void> firstFailed = Sinks.empty();
+            Mono<Attempt> primary = Mono.defer(() -> {
+                        first = balancer.choose();
+                        return attempt(first, false);
+                    })
+                    .onErrorResume(e -> second(true).switchIfEmpty(Mono.error(e)))
+                    .doOnError(e -> firstFailed.tryEmitEmpty());
+            // The timer stops if the first attempt fails without a retry, so the error is not held back
+            Mono<Attempt> hedge = Mono.delay(hedgeDelay())
+                    .takeUntilOther(firstFailed.asMono())
+                    .flatMap(tick -> second(false));
+            return Mono.firstWithValue(primary, hedge)
+                    .doOnNext(winner -> {
+                        if (secondSent) {
+                            (winner.second() ? counters.secondWins() : counters.firstWins()).increment();
+                        }
+                    })
+                    .map(Attempt::upstream)
+                    .onErrorResume(e -> {
+                        Throwable cause = lastError.get();
+                        if (cause instanceof UpstreamFailure failure) {
+                            return Mono.just(failure.upstream);
+                        }
+                        return Mono.error(cause != null ? cause : e);
+                    });
+        }
+
+        private Duration hedgeDelay() {
+            long percentile = latencies.percentile();
+            if (percentile < 0) {
+                return config.getMaxDelay();
+            }
+            return Duration.ofNanos(Math.clamp(percentile, config.getMinDelay().toNanos(),
+                    config.getMaxDelay().toNanos()));
+        }
+
+        // Empty when the other attempt was already sent, there is no other instance, or the budget is spent
+        private Mono<Attempt> second(boolean retry) {
+            if (!secondClaimed.compareAndSet(false, true)) {
+                return Mono.empty();
+            }
+            UpstreamBalancer.Instance other = balancer.chooseOther(first);
+            if (other == null) {
+                return Mono.empty();
+            }
+            if (!budget.tryAcquire()) {
+                other.release();
+                (retry ? counters.retriesExhausted() : counters.hedgesExhausted()).increment();
+                return Mono.empty();
+            }
+            secondSent = true;
+            (retry ? counters.retriesSent() : counters.hedgesSent()).increment();
+            return attempt(other, true);
+        }
+
+        private Mono<Attempt> attempt(UpstreamBalancer.Instance instance, boolean second) {
+            URI target = instance.getUri();
+            URI url = UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                    .scheme(target.getScheme())
+                    .host(target.getHost())
+                    .port(target.getPort())
+                    .build(true)
+                    .toUri();
+            long start = balancer.now();
+            AtomicBoolean done = new AtomicBoolean();
+            return httpClient
+                    .headers(headers -> requestHeaders.forEach(headers::set))
+                    .get()
+                    .uri(url)
+                    .responseSingle((response, body) -> body.asByteArray()
+                            .defaultIfEmpty(new byte[0])
+                            .map(bytes -> {
+                                HttpHeaders headers = new HttpHeaders();
+                                response.responseHeaders().forEach(entry -> headers.add(entry.getKey(), entry.getValue()));
+                                return new Upstream(response.status().code(), headers, bytes);
+                            }))
+                    .doOnSuccess(upstream -> {
+                        if (done.compareAndSet(false, true)) {
+                            long rtt = balancer.now() - start;
+                            instance.onResult(rtt, upstream.failed());
+                            if (!upstream.failed()) {
+                                latencies.record(rtt);
+                            }
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (done.compareAndSet(false, true)) {
+                            instance.onResult(balancer.now() - start, true);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        // A cancelled loser was at least this slow, which still steers the balancer away from it
+                        if (done.compareAndSet(false, true)) {
+                            instance.onResult(balancer.now() - start, false);
+                        }
+                    })
+                    .flatMap(upstream -> upstream.failed()
+                            ? Mono.<Attempt>error(new UpstreamFailure(upstream))
+                            : Mono.just(new Attempt(upstream, second)))
+                    .doOnError(lastError::set);
+        }
+    }
+
+    public static class Config {
+
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(5);
+        private Duration maxDelay = Duration.ofMillis(500);
+        private double budgetRatio = 0.1;
+        private int budgetBurst = 10;
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public Config setPercentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public Config setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public Config setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public Config setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        public int getBudgetBurst() {
+            return budgetBurst;
+        }
+
+        public Config setBudgetBurst(int budgetBurst) {
+            this.budgetBurst = budgetBurst;
+            return this;
+        }
+    }
+}
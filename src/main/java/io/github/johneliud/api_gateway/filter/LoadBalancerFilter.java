@@ -0,0 +1,83 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.UpstreamBalancer;
+import io.github.johneliud.api_gateway.config.UpstreamBalancers;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves {@code lb://<service>} request URLs to one of the service's instances, chosen by its
+ * {@link UpstreamBalancer}. Like {@link DownstreamProtectionFilter}, latency is sampled when the response is
+ * committed; 5xx responses and errors (connect failures, timeouts) count towards outlier ejection.
+ */
+@Component
+public class LoadBalancerFilter implements GlobalFilter, Ordered {
+
+    public static final String SCHEME = "lb";
+
+    private final UpstreamBalancers balancers;
+
+    public LoadBalancerFilter(UpstreamBalancers balancers) {
+        this.balancers = balancers;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (url == null || !SCHEME.equals(url.getScheme())) {
+            return chain.filter(exchange);
+        }
+        UpstreamBalancer balancer = balancers.find(url.getHost());
+        if (balancer == null) {
+            return Mono.error(NotFoundException.create(false, "Unknown service: " + url.getHost()));
+        }
+
+        UpstreamBalancer.Instance instance = balancer.choose();
+        URI target = instance.getUri();
+        ServerWebExchangeUtils.addOriginalRequestUrl(exchange, url);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, UriComponentsBuilder.fromUri(url)
+                .scheme(target.getScheme())
+                .host(target.getHost())
+                .port(target.getPort())
+                .build(true)
+                .toUri());
+
+        long start = balancer.now();
+        AtomicBoolean done = new AtomicBoolean();
+        exchange.getResponse().beforeCommit(() -> {
+            if (done.compareAndSet(false, true)) {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                instance.onResult(balancer.now() - start, status != null && status.is5xxServerError());
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .doOnError(e -> {
+                    if (done.compareAndSet(false, true)) {
+                        instance.onResult(balancer.now() - start, true);
+                    }
+                })
+                .doFinally(signal -> {
+                    if (done.compareAndSet(false, true)) {
+                        instance.release();
+                    }
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER + 1;
+    }
+}
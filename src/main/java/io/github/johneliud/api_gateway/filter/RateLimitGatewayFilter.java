@@ -1,53 +1,211 @@
 package io.github.johneliud.api_gateway.filter;
 
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConfigurationBuilder;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.johneliud.api_gateway.config.AccessLog;
 import io.github.johneliud.api_gateway.config.RateLimitService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
-import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
-import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Component
 public class RateLimitGatewayFilter extends AbstractGatewayFilterFactory<RateLimitGatewayFilter.Config> {
 
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    /**
+     * Runs ahead of the response cache, coalescing and compression filters, which are ordered and would
+     * otherwise answer cache hits and coalesced followers before the limiter sees them.
+     */
+    public static final int BEFORE_RESPONSE_FILTERS = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 3;
+
     private final RateLimitService rateLimitService;
+    private final Set<String> apiKeys;
+    private final Timer filterTimer;
+    private final Counter rateLimited;
 
-    public RateLimitGatewayFilter(RateLimitService rateLimitService) {
+    public RateLimitGatewayFilter(RateLimitService rateLimitService,
+                                  @Value("${rate.limit.api-keys:}") String apiKeys,
+                                  MeterRegistry meterRegistry) {
         super(Config.class);
         this.rateLimitService = rateLimitService;
+        this.apiKeys = Arrays.stream(apiKeys.split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.filterTimer = Timer.builder("gateway.filter.time")
+                .description("Time spent inside the filter before handing off to the rest of the chain")
+                .tag("filter", "rate-limit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rateLimited = Counter.builder("gateway.requests.rejected")
+                .tag("filter", "rate-limit")
+                .tag("status", "429")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("keyResolver", "bandwidths", "order");
     }
 
     @Override
     public GatewayFilter apply(Config config) {
-        return (exchange, chain) -> {
-            String clientIp = getClientIp(exchange);
-            if (!rateLimitService.tryConsume(clientIp)) {
-                return onRateLimitExceeded(exchange);
-            }
-            return chain.filter(exchange);
+        BucketConfiguration limits = config.getLimits().isEmpty()
+                ? rateLimitService.getLoginLimit()
+                : config.toBucketConfiguration();
+        KeyResolver keyResolver = config.getKeyResolver();
+        GatewayFilter filter = (exchange, chain) -> {
+            long start = System.nanoTime();
+            String key = getRouteId(exchange) + ":" + keyResolver.resolve(exchange, apiKeys);
+            exchange.getAttributes().put(AccessLog.RATE_LIMIT_KEY_ATTR, key);
+            // With a shared store the probe may arrive after a network round trip, off the event loop
+            return rateLimitService.consume(key, limits).flatMap(probe -> {
+                exchange.getAttributes().put(AccessLog.RATE_LIMITED_ATTR, !probe.isConsumed());
+                HttpHeaders headers = exchange.getResponse().getHeaders();
+                headers.set(REMAINING_HEADER, Long.toString(probe.getRemainingTokens()));
+                if (!probe.isConsumed()) {
+                    headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(probe)));
+                    rateLimited.increment();
+                    filterTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    return Rejection.RATE_LIMITED.writeTo(exchange);
+                }
+                filterTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return chain.filter(exchange);
+            });
         };
+        // Without an order the filter runs where it is declared, e.g. after AuthenticationFilter for USER keys
+        return config.getOrder() != null ? new OrderedGatewayFilter(filter, config.getOrder()) : filter;
+    }
+
+    private String getRouteId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "default";
+    }
+
+    private static long retryAfterSeconds(ConsumptionProbe probe) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill() + 999_999_999L));
     }
 
-    private String getClientIp(ServerWebExchange exchange) {
+    private static String getClientIp(ServerWebExchange exchange) {
         if (exchange.getRequest().getRemoteAddress() != null) {
             return exchange.getRequest().getRemoteAddress().getAddress().getHostAddress();
         }
         return "unknown";
     }
 
-    private Mono<Void> onRateLimitExceeded(ServerWebExchange exchange) {
-        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
-        exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
-        String body = "{\"error\":\"Rate limit exceeded\"}";
-        DataBuffer buffer = exchange.getResponse().bufferFactory()
-                .wrap(body.getBytes(StandardCharsets.UTF_8));
-        return exchange.getResponse().writeWith(Mono.just(buffer));
+    public enum KeyResolver {
+        IP,
+        // X-User-Id is only trusted after AuthenticationFilter has run; anonymous callers fall back to IP
+        USER,
+        // Only keys listed in rate.limit.api-keys get their own bucket; a made-up key would otherwise be a fresh one
+        API_KEY,
+        ROUTE;
+
+        static final String API_KEY_HEADER = "X-API-Key";
+
+        String resolve(ServerWebExchange exchange, Set<String> apiKeys) {
+            return switch (this) {
+                case IP -> "ip:" + getClientIp(exchange);
+                case USER -> {
+                    String userId = exchange.getRequest().getHeaders().getFirst("X-User-Id");
+                    yield userId != null && !userId.isBlank() ? "user:" + userId : "ip:" + getClientIp(exchange);
+                }
+                case API_KEY -> {
+                    String apiKey = exchange.getRequest().getHeaders().getFirst(API_KEY_HEADER);
+                    yield apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "ip:" + getClientIp(exchange);
+                }
+                case ROUTE -> "route";
+            };
+        }
+    }
+
+    // capacity is the burst size; the bucket refills refillTokens every refillPeriod
+    public record Limit(long capacity, long refillTokens, Duration refillPeriod) {
     }
 
-    public static class Config {}
+    public static class Config {
+
+        private KeyResolver keyResolver = KeyResolver.IP;
+        private List<Limit> limits = new ArrayList<>();
+        private Integer order;
+
+        public KeyResolver getKeyResolver() {
+            return keyResolver;
+        }
+
+        public Config setKeyResolver(KeyResolver keyResolver) {
+            this.keyResolver = keyResolver;
+            return this;
+        }
+
+        public List<Limit> getLimits() {
+            return limits;
+        }
+
+        public Config setLimits(List<Limit> limits) {
+            this.limits = limits;
+            return this;
+        }
+
+        public Integer getOrder() {
+            return order;
+        }
+
+        public Config setOrder(Integer order) {
+            this.order = order;
+            return this;
+        }
+
+        public Config addLimit(long capacity, long refillTokens, Duration refillPeriod) {
+            limits.add(new Limit(capacity, refillTokens, refillPeriod));
+            return this;
+        }
+
+        // Route-file form of addLimit: "capacity:refillTokens/period" entries separated by ';', e.g. "40:20/1s;5000:5000/1h"
+        public Config setBandwidths(String bandwidths) {
+            limits = new ArrayList<>();
+            for (String bandwidth : bandwidths.split(";")) {
+                String[] parts = bandwidth.trim().split("[:/]");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Expected capacity:refillTokens/period but got " + bandwidth);
+                }
+                addLimit(Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim()),
+                        DurationStyle.detectAndParse(parts[2].trim()));
+            }
+            return this;
+        }
+
+        BucketConfiguration toBucketConfiguration() {
+            ConfigurationBuilder builder = BucketConfiguration.builder();
+            for (Limit limit : limits) {
+                builder.addLimit(Bandwidth.builder()
+                        .capacity(limit.capacity())
+                        .refillGreedy(limit.refillTokens(), limit.refillPeriod())
+                        .build());
+            }
+            return builder.build();
+        }
+    }
 }
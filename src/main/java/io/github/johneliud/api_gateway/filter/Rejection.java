@@ -0,0 +1,96 @@
+package io.github.johneliud.api_gateway.filter;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Responses for requests the gateway turns away itself. Every rejection has the same JSON shape,
+ * {@code {"error":"<message>","code":"<code>","status":<status>,"request_id":"<id>"}}, and everything but the
+ * request id is encoded once here, so a flood of 401s, 413s or 429s costs one small buffer copy per request
+ * rather than string building and UTF-8 encoding.
+ *
+ * <p>The request id is the caller's {@code X-Request-Id} when it is short and plain ASCII, otherwise the id
+ * the server gave the request; it is echoed in the {@code X-Request-Id} response header.
+ */
+public enum Rejection {
+
+    MISSING_TOKEN(HttpStatus.UNAUTHORIZED, "unauthorized", "Missing or invalid Authorization header"),
+    INVALID_TOKEN(HttpStatus.UNAUTHORIZED, "unauthorized", "Invalid or expired token"),
+    ORIGIN_NOT_ALLOWED(HttpStatus.FORBIDDEN, "origin_not_allowed", "Origin not allowed"),
+    RATE_LIMITED(HttpStatus.TOO_MANY_REQUESTS, "rate_limited", "Rate limit exceeded"),
+    TOO_MANY_IN_FLIGHT(HttpStatus.TOO_MANY_REQUESTS, "too_many_in_flight", "Too many concurrent requests"),
+    PAYLOAD_TOO_LARGE(HttpStatus.CONTENT_TOO_LARGE, "payload_too_large", "Request body too large"),
+    UPLOAD_TOO_SLOW(HttpStatus.REQUEST_TIMEOUT, "upload_too_slow", "Request body arrived too slowly"),
+    CIRCUIT_OPEN(HttpStatus.SERVICE_UNAVAILABLE, "circuit_open", "Service temporarily unavailable"),
+    OVERLOADED(HttpStatus.SERVICE_UNAVAILABLE, "overloaded", "Service overloaded");
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    private static final String CONTENT_TYPE = "application/json";
+    private static final byte[] TAIL = "\"}".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    private final HttpStatus status;
+    private final byte[] head;
+
+    Rejection(HttpStatus status, String code, String message) {
+        this.status = status;
+        this.head = ("{\"error\":\"" + message + "\",\"code\":\"" + code + "\",\"status\":" + status.value()
+                + ",\"request_id\":\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public HttpStatus status() {
+        return status;
+    }
+
+    /** Sets the status and headers and writes the body; call it before anything else touches the exchange. */
+    public Mono<Void> writeTo(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        String requestId = requestId(exchange.getRequest());
+        int length = head.length + requestId.length() + TAIL.length;
+
+        response.setStatusCode(status);
+        HttpHeaders headers = response.getHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE);
+        headers.set(REQUEST_ID_HEADER, requestId);
+        // A known length also lets CompressionFilter pass the body through without inspecting it
+        headers.setContentLength(length);
+
+        DataBuffer buffer = response.bufferFactory().allocateBuffer(length);
+        buffer.write(head);
+        // The id is checked to be ASCII, so each char is one byte
+        for (int i = 0; i < requestId.length(); i++) {
+            buffer.write((byte) requestId.charAt(i));
+        }
+        buffer.write(TAIL);
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    static String requestId(ServerHttpRequest request) {
+        String supplied = request.getHeaders().getFirst(REQUEST_ID_HEADER);
+        return supplied != null && isPlainId(supplied) ? supplied : request.getId();
+    }
+
+    // Letters, digits and ._:- only: nothing that needs escaping in JSON or a header
+    private static boolean isPlainId(String id) {
+        if (id.isEmpty() || id.length() > MAX_REQUEST_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean plain = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '_' || c == ':' || c == '-';
+            if (!plain) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
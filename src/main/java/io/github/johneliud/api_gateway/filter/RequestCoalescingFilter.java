@@ -0,0 +1,227 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-flight for idempotent public GETs: while one request for a key is in flight upstream, identical
+ * requests wait for it and receive a copy of its response instead of opening their own upstream exchange.
+ * Upstream errors are propagated to every waiter; if the leading client cancels, waiters elect a new leader.
+ */
+@Component
+public class RequestCoalescingFilter extends AbstractGatewayFilterFactory<RequestCoalescingFilter.Config> {
+
+    private static final Set<String> UNSHARED_HEADERS = headerNames(List.of(
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION, HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.RETRY_AFTER, RateLimitGatewayFilter.REMAINING_HEADER));
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+    private final Counter bypassed;
+
+    public RequestCoalescingFilter(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.coalesced = Counter.builder("gateway.coalescing.requests")
+                .description("Requests answered from another request's in-flight upstream exchange")
+                .register(meterRegistry);
+        this.bypassed = Counter.builder("gateway.coalescing.bypassed")
+                .description("Waiting requests that had to call upstream themselves")
+                .register(meterRegistry);
+        Gauge.builder("gateway.coalescing.in.flight", inFlight, Map::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!HttpMethod.GET.equals(request.getMethod())
+                    || request.getHeaders().containsHeader(HttpHeaders.AUTHORIZATION)
+                    || request.getHeaders().containsHeader(HttpHeaders.RANGE)) {
+                return chain.filter(exchange);
+            }
+            return coalesce(exchange, chain, key(request, config.getVaryHeaders()), config.getMaxBodyBytes());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    static String key(ServerHttpRequest request, List<String> varyHeaders) {
+        StringBuilder key = new StringBuilder(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        for (String header : varyHeaders) {
+            key.append('|').append(request.getHeaders().getValuesAsList(header));
+        }
+        return key.toString();
+    }
+
+    private Mono<Void> coalesce(ServerWebExchange exchange, GatewayFilterChain chain, String key, long maxBodyBytes) {
+        Flight flight = new Flight();
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return existing.result().flatMap(shared -> {
+                if (shared == SharedResponse.LEADER_CANCELLED) {
+                    return coalesce(exchange, chain, key, maxBodyBytes);
+                }
+                if (shared == SharedResponse.NOT_SHAREABLE) {
+                    bypassed.increment();
+                    return chain.filter(exchange);
+                }
+                coalesced.increment();
+                return write(exchange.getResponse(), shared);
+            });
+        }
+
+        Set<String> gatewayHeaders = headerNames(exchange.getResponse().getHeaders().headerNames());
+        LeaderResponse leader = new LeaderResponse(exchange.getResponse(), flight, maxBodyBytes, gatewayHeaders);
+        return chain.filter(exchange.mutate().response(leader).build())
+                .doOnError(flight::fail)
+                .doFinally(signal -> {
+                    inFlight.remove(key, flight);
+                    if (signal != SignalType.ON_ERROR) {
+                        flight.complete(SharedResponse.LEADER_CANCELLED);
+                    }
+                });
+    }
+
+    private static Set<String> headerNames(Collection<String> names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(names);
+        return set;
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        if (!shared.body().hasRemaining()) {
+            return response.setComplete();
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body().duplicate())));
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, ByteBuffer body) {
+
+        static final SharedResponse NOT_SHAREABLE = new SharedResponse(null, null, null);
+        static final SharedResponse LEADER_CANCELLED = new SharedResponse(null, null, null);
+    }
+
+    private static class Flight {
+
+        private final Sinks.One<SharedResponse> sink = Sinks.one();
+
+        Mono<SharedResponse> result() {
+            return sink.asMono();
+        }
+
+        void complete(SharedResponse response) {
+            sink.tryEmitValue(response);
+        }
+
+        void fail(Throwable error) {
+            sink.tryEmitError(error);
+        }
+    }
+
+    private static class LeaderResponse extends ServerHttpResponseDecorator {
+
+        private final Flight flight;
+        private final long maxBodyBytes;
+        private final Set<String> gatewayHeaders;
+
+        LeaderResponse(ServerHttpResponse delegate, Flight flight, long maxBodyBytes, Set<String> gatewayHeaders) {
+            super(delegate);
+            this.flight = flight;
+            this.maxBodyBytes = maxBodyBytes;
+            this.gatewayHeaders = gatewayHeaders;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            long contentLength = getHeaders().getContentLength();
+            if (getHeaders().containsHeader(HttpHeaders.SET_COOKIE) || contentLength > maxBodyBytes) {
+                flight.complete(SharedResponse.NOT_SHAREABLE);
+                return super.writeWith(body);
+            }
+            // Taken before outer decorators such as CompressionFilter rewrite them for the encoded body
+            HttpHeaders headers = sharedHeaders();
+            BodyRecorder recorder = new BodyRecorder(contentLength, maxBodyBytes);
+            Flux<DataBuffer> recorded = Flux.<DataBuffer>from(body)
+                    .doOnNext(recorder::append)
+                    .doOnComplete(() -> flight.complete(recorder.isOverflowed()
+                            ? SharedResponse.NOT_SHAREABLE
+                            : new SharedResponse(getStatusCode(), headers, recorder.toByteBuffer())));
+            return super.writeWith(recorded);
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            if (!getHeaders().containsHeader(HttpHeaders.SET_COOKIE)) {
+                flight.complete(new SharedResponse(getStatusCode(), sharedHeaders(), ByteBuffer.allocate(0)));
+            }
+            return super.setComplete();
+        }
+
+        // Only what the upstream sent: headers the gateway set for this particular client are not copied
+        private HttpHeaders sharedHeaders() {
+            HttpHeaders shared = new HttpHeaders();
+            for (String name : getHeaders().headerNames()) {
+                if (!gatewayHeaders.contains(name) && !UNSHARED_HEADERS.contains(name)) {
+                    shared.put(name, getHeaders().get(name));
+                }
+            }
+            return HttpHeaders.readOnlyHttpHeaders(shared);
+        }
+    }
+
+    public static class Config {
+
+        private List<String> varyHeaders = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE);
+        private long maxBodyBytes = 1024 * 1024;
+
+        public List<String> getVaryHeaders() {
+            return varyHeaders;
+        }
+
+        public Config setVaryHeaders(List<String> varyHeaders) {
+            this.varyHeaders = varyHeaders;
+            return this;
+        }
+
+        public long getMaxBodyBytes() {
+            return maxBodyBytes;
+        }
+
+        public Config setMaxBodyBytes(long maxBodyBytes) {
+            this.maxBodyBytes = maxBodyBytes;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.CachedResponse;
+import io.github.johneliud.api_gateway.config.ResponseCache;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+@Component
+public class ResponseCacheFilter extends AbstractGatewayFilterFactory<ResponseCacheFilter.Config> {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    // Set on a hit so CompressionFilter can reuse the entry's compressed body instead of recompressing it
+    public static final String CACHED_RESPONSE_ATTR = ResponseCacheFilter.class.getName() + ".cachedResponse";
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheFilter(ResponseCache responseCache) {
+        super(Config.class);
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl", "maxEntryBytes");
+    }
+
+    // Must wrap the response before NettyWriteResponseFilter writes the upstream body
+    @Override
+    public GatewayFilter apply(Config config) {
+        Duration ttl = config.getTtl();
+        long maxEntryBytes = Math.min(config.getMaxEntryBytes(), responseCache.getMaxEntryBytes());
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            // Partial-content requests stream straight through: a cached 200 cannot answer them and a 206 is never stored
+            if (!HttpMethod.GET.equals(request.getMethod())
+                    || request.getHeaders().containsHeader(HttpHeaders.AUTHORIZATION)
+                    || request.getHeaders().containsHeader(HttpHeaders.RANGE)) {
+                return chain.filter(exchange);
+            }
+
+            String key = ResponseCache.key(request);
+            if (!isNoCacheRequest(request)) {
+                CachedResponse cached = responseCache.get(key);
+                if (cached != null) {
+                    return writeCached(exchange, cached);
+                }
+            }
+
+            exchange.getResponse().getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            ServerHttpResponse recording = new RecordingResponse(exchange.getResponse(), key, ttl, maxEntryBytes);
+            return chain.filter(exchange.mutate().response(recording).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private boolean isNoCacheRequest(ServerHttpRequest request) {
+        String cacheControl = request.getHeaders().getCacheControl();
+        return cacheControl != null && (cacheControl.contains("no-cache") || cacheControl.contains("no-store"));
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.set(CACHE_STATUS_HEADER, "HIT");
+        if (matchesEtag(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.setETag(cached.etag());
+            if (cached.headers().getCacheControl() != null) {
+                headers.setCacheControl(cached.headers().getCacheControl());
+            }
+            responseCache.recordNotModified(cached);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.putAll(cached.headers());
+        responseCache.recordHit(cached);
+        exchange.getAttributes().put(CACHED_RESPONSE_ATTR, cached);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body().duplicate())));
+    }
+
+    static boolean matchesEtag(List<String> ifNoneMatch, String etag) {
+        if (etag == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        String target = stripWeak(etag);
+        for (String candidate : ifNoneMatch) {
+            if (candidate.equals("*") || stripWeak(candidate).equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private class RecordingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+        private final Duration routeTtl;
+        private final long maxEntryBytes;
+
+        RecordingResponse(ServerHttpResponse delegate, String key, Duration routeTtl, long maxEntryBytes) {
+            super(delegate);
+            this.key = key;
+            this.routeTtl = routeTtl;
+            this.maxEntryBytes = maxEntryBytes;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            Duration ttl = HttpStatus.OK.equals(getStatusCode())
+                    ? ResponseCache.effectiveTtl(getHeaders(), routeTtl)
+                    : null;
+            long contentLength = getHeaders().getContentLength();
+            if (ttl == null || contentLength > maxEntryBytes) {
+                return super.writeWith(body);
+            }
+
+            // Taken before outer decorators such as CompressionFilter rewrite them for the encoded body
+            HttpHeaders upstreamHeaders = new HttpHeaders();
+            upstreamHeaders.putAll(getHeaders());
+            BodyRecorder recorder = new BodyRecorder(contentLength, maxEntryBytes);
+            Flux<DataBuffer> recorded = Flux.<DataBuffer>from(body)
+                    .doOnNext(recorder::append)
+                    .doOnComplete(() -> {
+                        if (!recorder.isOverflowed()) {
+                            responseCache.put(key, upstreamHeaders, recorder.toByteBuffer(), ttl);
+                        }
+                    });
+            return super.writeWith(recorded);
+        }
+    }
+
+    public static class Config {
+
+        private Duration ttl = Duration.ofSeconds(30);
+        private long maxEntryBytes = Long.MAX_VALUE;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public Config setTtl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public long getMaxEntryBytes() {
+            return maxEntryBytes;
+        }
+
+        // Larger bodies are passed through untouched; capped by response.cache.max-entry-bytes
+        public Config setMaxEntryBytes(long maxEntryBytes) {
+            this.maxEntryBytes = maxEntryBytes;
+            return this;
+        }
+    }
+}
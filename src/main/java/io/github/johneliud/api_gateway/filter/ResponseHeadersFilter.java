@@ -0,0 +1,149 @@
+package io.github.johneliud.api_gateway.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.reactive.CorsUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Security and CORS headers for every response, in one stage. The header sets are built once: one for
+ * responses without an allowed {@code Origin}, and one actual-response and one preflight set per allowed
+ * origin, so a response costs a map lookup and one copy of a ready-made set when it commits.
+ *
+ * <p>Preflights are answered here, before the gateway handler, from the precomputed per-origin decision,
+ * with {@code Access-Control-Max-Age} so browsers reuse the answer. Requests from an origin that is not
+ * allowed (and not the gateway's own) get 403.
+ */
+@Component
+public class ResponseHeadersFilter implements WebFilter, Ordered {
+
+    static final Set<HttpMethod> ALLOWED_METHODS = Set.of(HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT,
+            HttpMethod.DELETE, HttpMethod.OPTIONS);
+
+    private static final List<String> VARY = List.of(HttpHeaders.ORIGIN,
+            HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+
+    private final HttpHeaders securityHeaders;
+    private final Map<String, HttpHeaders> corsHeaders = new HashMap<>();
+    private final Map<String, HttpHeaders> preflightHeaders = new HashMap<>();
+
+    public ResponseHeadersFilter(@Value("${cors.allowed-origins}") String allowedOrigins,
+                                 @Value("${cors.max-age:2h}") Duration maxAge) {
+        HttpHeaders security = new HttpHeaders();
+        security.set("X-Content-Type-Options", "nosniff");
+        security.set("X-Frame-Options", "DENY");
+        security.set("X-XSS-Protection", "1; mode=block");
+        security.set("Content-Security-Policy", "default-src 'self'");
+        this.securityHeaders = HttpHeaders.readOnlyHttpHeaders(security);
+
+        String methods = ALLOWED_METHODS.stream().map(HttpMethod::name).sorted().collect(Collectors.joining(","));
+        for (String origin : allowedOrigins.split(",")) {
+            origin = trimOrigin(origin);
+            if (origin.isEmpty()) {
+                continue;
+            }
+            HttpHeaders cors = new HttpHeaders();
+            cors.putAll(security);
+            cors.set(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+            cors.set(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+            HttpHeaders preflight = new HttpHeaders();
+            preflight.putAll(cors);
+            preflight.set(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, methods);
+            preflight.set(HttpHeaders.ACCESS_CONTROL_MAX_AGE, Long.toString(maxAge.toSeconds()));
+            cors.set(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, HttpHeaders.AUTHORIZATION);
+            corsHeaders.put(origin, HttpHeaders.readOnlyHttpHeaders(cors));
+            preflightHeaders.put(origin, HttpHeaders.readOnlyHttpHeaders(preflight));
+        }
+    }
+
+    // Browsers send the origin without a trailing slash; the configured list may have one
+    private static String trimOrigin(String origin) {
+        String trimmed = origin.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String origin = request.getHeaders().getOrigin();
+        if (origin == null) {
+            return proceed(exchange, chain, securityHeaders);
+        }
+        if (CorsUtils.isPreFlightRequest(request)) {
+            return preflight(exchange, origin);
+        }
+        HttpHeaders headers = corsHeaders.get(origin);
+        if (headers != null) {
+            return proceed(exchange, chain, headers);
+        }
+        // The allowed list only matters cross-origin; the gateway's own pages need no CORS headers
+        if (CorsUtils.isSameOrigin(request)) {
+            return proceed(exchange, chain, securityHeaders);
+        }
+        return reject(exchange);
+    }
+
+    private Mono<Void> proceed(ServerWebExchange exchange, WebFilterChain chain, HttpHeaders headers) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            apply(response.getHeaders(), headers);
+            return Mono.empty();
+        });
+        return chain.filter(exchange);
+    }
+
+    private Mono<Void> preflight(ServerWebExchange exchange, String origin) {
+        HttpHeaders headers = preflightHeaders.get(origin);
+        HttpMethod method = exchange.getRequest().getHeaders().getAccessControlRequestMethod();
+        if (headers == null || method == null || !ALLOWED_METHODS.contains(method)) {
+            return reject(exchange);
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        apply(response.getHeaders(), headers);
+        // Any header may be sent, so the requested ones are allowed as they are
+        String requestedHeaders = exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+        if (requestedHeaders != null) {
+            response.getHeaders().set(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, requestedHeaders);
+        }
+        return response.setComplete();
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange) {
+        apply(exchange.getResponse().getHeaders(), securityHeaders);
+        return Rejection.ORIGIN_NOT_ALLOWED.writeTo(exchange);
+    }
+
+    // Vary is added to, not replaced, so CompressionFilter's Accept-Encoding survives
+    private static void apply(HttpHeaders target, HttpHeaders headers) {
+        target.putAll(headers);
+        List<String> vary = target.getVary();
+        for (String name : VARY) {
+            if (!vary.contains(name)) {
+                target.add(HttpHeaders.VARY, name);
+            }
+        }
+    }
+
+    // Ahead of every other filter, so preflights and refused origins never reach the route chain
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.RouteMetrics;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Timestamps for one request, carried as an exchange attribute and in the Reactor context so the
+ * upstream HTTP client can stamp when the request was sent and when response headers arrived.
+ *
+ * <p>The holder doubles as the response's before-commit action and as the context write, so a routed
+ * request costs this object and one context entry; the context is the only way to reach the HTTP client's
+ * hooks, which never see the exchange.
+ */
+public class RouteTiming implements Supplier<Mono<Void>>, Function<Context, Context> {
+
+    public static final String ATTRIBUTE = RouteTiming.class.getName();
+
+    private final RouteMetrics.RouteTimers timers;
+    final long start;
+    volatile long upstreamStart;
+    volatile long requestSent;
+    volatile long responseReceived;
+
+    RouteTiming(RouteMetrics.RouteTimers timers, long start) {
+        this.timers = timers;
+        this.start = start;
+    }
+
+    public static RouteTiming of(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    public void requestSent() {
+        requestSent = System.nanoTime();
+    }
+
+    public void responseReceived() {
+        responseReceived = System.nanoTime();
+    }
+
+    // Runs when the response is committed
+    @Override
+    public Mono<Void> get() {
+        timers.record(start, upstreamStart, requestSent, responseReceived, System.nanoTime());
+        return Mono.empty();
+    }
+
+    @Override
+    public Context apply(Context context) {
+        return context.put(RouteTiming.class, this);
+    }
+}
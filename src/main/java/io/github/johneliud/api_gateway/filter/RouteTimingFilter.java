@@ -0,0 +1,63 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.RouteMetrics;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Starts the per-route clock before any route filter runs and records {@code gateway.route.latency}
+ * when the response is committed. Each routed request allocates its {@link RouteTiming} and one Reactor
+ * context entry.
+ */
+@Component
+public class RouteTimingFilter implements GlobalFilter, Ordered {
+
+    private final RouteMetrics routeMetrics;
+
+    public RouteTimingFilter(RouteMetrics routeMetrics) {
+        this.routeMetrics = routeMetrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        RouteTiming timing = new RouteTiming(routeMetrics.forRoute(route.getId()), System.nanoTime());
+        exchange.getAttributes().put(RouteTiming.ATTRIBUTE, timing);
+        exchange.getResponse().beforeCommit(timing);
+        return chain.filter(exchange).contextWrite(timing);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /** Marks the hand-off to the upstream HTTP client, after every route filter has run. */
+    @Component
+    public static class UpstreamStart implements GlobalFilter, Ordered {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            RouteTiming timing = RouteTiming.of(exchange);
+            if (timing != null) {
+                timing.upstreamStart = System.nanoTime();
+            }
+            return chain.filter(exchange);
+        }
+
+        @Override
+        public int getOrder() {
+            return NettyRoutingFilter.ORDER - 1;
+        }
+    }
+}
@@ -1,25 +0,0 @@
-package io.github.johneliud.api_gateway.filter;
-
-import org.springframework.http.HttpHeaders;
-import org.springframework.stereotype.Component;
-import org.springframework.web.server.ServerWebExchange;
-import org.springframework.web.server.WebFilter;
-import org.springframework.web.server.WebFilterChain;
-import reactor.core.publisher.Mono;
-
-@Component
-public class SecurityHeadersFilter implements WebFilter {
-
-    @Override
-    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        exchange.getResponse().beforeCommit(() -> {
-            HttpHeaders headers = exchange.getResponse().getHeaders();
-            headers.set("X-Content-Type-Options", "nosniff");
-            headers.set("X-Frame-Options", "DENY");
-            headers.set("X-XSS-Protection", "1; mode=block");
-            headers.set("Content-Security-Policy", "default-src 'self'");
-            return Mono.empty();
-        });
-        return chain.filter(exchange);
-    }
-}
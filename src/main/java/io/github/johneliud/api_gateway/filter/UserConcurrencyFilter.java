@@ -0,0 +1,117 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.UserQuota;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caps the requests each authenticated user has in flight to one backend service, so a single client
+ * opening hundreds of parallel requests cannot take the whole service. Routes naming the same service
+ * share one {@link UserQuota}. Runs after {@link AuthenticationFilter}, keyed on the {@code X-User-Id} it
+ * derives from the token; requests without one pass through.
+ *
+ * <p>A user at the cap waits up to {@code user.concurrency.max-wait} in a queue of at most
+ * {@code user.concurrency.max-queued}, then gets 429 with {@code Retry-After: 1}.
+ */
+@Component
+public class UserConcurrencyFilter extends AbstractGatewayFilterFactory<UserConcurrencyFilter.Config> {
+
+    static final String USER_ID_HEADER = "X-User-Id";
+
+    private final Map<String, UserQuota> quotas = new ConcurrentHashMap<>();
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final Duration maxWait;
+    private final MeterRegistry meterRegistry;
+
+    public UserConcurrencyFilter(@Value("${user.concurrency.max-in-flight:16}") int maxInFlight,
+                                 @Value("${user.concurrency.max-queued:8}") int maxQueued,
+                                 @Value("${user.concurrency.max-wait:250ms}") Duration maxWait,
+                                 MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("service");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String service = config.getService();
+        UserQuota quota = quotas.computeIfAbsent(service, this::register);
+        Counter queued = Counter.builder("gateway.user.concurrency.queued")
+                .description("Requests that found their user at the cap and tried to queue")
+                .tag("service", service)
+                .register(meterRegistry);
+        Counter rejected = Counter.builder("gateway.requests.rejected")
+                .tag("filter", "user-concurrency")
+                .tag("status", "429")
+                .register(meterRegistry);
+        return (exchange, chain) -> {
+            String userId = exchange.getRequest().getHeaders().getFirst(USER_ID_HEADER);
+            if (userId == null) {
+                return chain.filter(exchange);
+            }
+            UserQuota.Permit permit = quota.tryAcquire(userId);
+            if (permit != null) {
+                return proceed(exchange, chain, permit);
+            }
+            queued.increment();
+            // proceed completes empty too, so pick the continuation before subscribing to it
+            return quota.await(userId)
+                    .map(granted -> proceed(exchange, chain, granted))
+                    .defaultIfEmpty(Mono.defer(() -> {
+                        rejected.increment();
+                        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                        return Rejection.TOO_MANY_IN_FLIGHT.writeTo(exchange);
+                    }))
+                    .flatMap(next -> next);
+        };
+    }
+
+    private static Mono<Void> proceed(ServerWebExchange exchange, GatewayFilterChain chain, UserQuota.Permit permit) {
+        return chain.filter(exchange).doFinally(signal -> permit.release());
+    }
+
+    private UserQuota register(String service) {
+        UserQuota quota = new UserQuota(maxInFlight, maxQueued, maxWait);
+        Gauge.builder("gateway.user.concurrency.principals", quota, UserQuota::principals)
+                .description("Users holding or waiting for a permit")
+                .tag("service", service)
+                .register(meterRegistry);
+        return quota;
+    }
+
+    public static class Config {
+
+        private String service = "default";
+
+        public String getService() {
+            return service;
+        }
+
+        public Config setService(String service) {
+            this.service = service;
+            return this;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package io.github.johneliud.api_gateway.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,25 +14,31 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 public class JwtUtil {
-    
+
     private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
-    
-    @Value("${jwt.secret}")
-    private String secret;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    private final AtomicReference<SigningKeys> signingKeys;
+    private final JwtParser parser;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.keys:}") String keys) {
+        this.signingKeys = new AtomicReference<>(SigningKeys.of(secret, parseKeys(keys)));
+        this.parser = Jwts.parser()
+                .keyLocator(new KeyIdLocator())
+                .build();
     }
 
     public Claims validateToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public String getUserId(Claims claims) {
@@ -38,4 +48,80 @@ public class JwtUtil {
     public String getRole(Claims claims) {
         return claims.get("role", String.class);
     }
+
+    public String getTokenId(Claims claims) {
+        return claims.getId();
+    }
+
+    public Set<String> getKeyIds() {
+        return signingKeys.get().byKeyId().keySet();
+    }
+
+    public void putKey(String keyId, String secret) {
+        SecretKey key = toKey(secret);
+        signingKeys.updateAndGet(current -> current.with(keyId, key));
+        log.info("JWT signing key '{}' registered", keyId);
+    }
+
+    public void removeKey(String keyId) {
+        signingKeys.updateAndGet(current -> current.without(keyId));
+        log.info("JWT signing key '{}' removed", keyId);
+    }
+
+    static Map<String, String> parseKeys(String keys) {
+        Map<String, String> secretsByKeyId = new LinkedHashMap<>();
+        if (keys == null || keys.isBlank()) {
+            return secretsByKeyId;
+        }
+        for (String entry : keys.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid jwt.keys entry, expected <kid>:<secret>");
+            }
+            secretsByKeyId.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+        return secretsByKeyId;
+    }
+
+    private static SecretKey toKey(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record SigningKeys(SecretKey defaultKey, Map<String, SecretKey> byKeyId) {
+
+        static SigningKeys of(String secret, Map<String, String> secretsByKeyId) {
+            Map<String, SecretKey> byKeyId = new HashMap<>();
+            secretsByKeyId.forEach((keyId, keySecret) -> byKeyId.put(keyId, toKey(keySecret)));
+            return new SigningKeys(toKey(secret), Map.copyOf(byKeyId));
+        }
+
+        SigningKeys with(String keyId, SecretKey key) {
+            Map<String, SecretKey> updated = new HashMap<>(byKeyId);
+            updated.put(keyId, key);
+            return new SigningKeys(defaultKey, Map.copyOf(updated));
+        }
+
+        SigningKeys without(String keyId) {
+            Map<String, SecretKey> updated = new HashMap<>(byKeyId);
+            updated.remove(keyId);
+            return new SigningKeys(defaultKey, Map.copyOf(updated));
+        }
+    }
+
+    private class KeyIdLocator extends LocatorAdapter<Key> {
+
+        @Override
+        protected Key locate(JwsHeader header) {
+            SigningKeys current = signingKeys.get();
+            String keyId = header.getKeyId();
+            if (keyId == null) {
+                return current.defaultKey();
+            }
+            SecretKey key = current.byKeyId().get(keyId);
+            if (key == null) {
+                throw new JwtException("Unknown signing key id: " + keyId);
+            }
+            return key;
+        }
+    }
 }
@@ -0,0 +1,140 @@
+package io.github.johneliud.api_gateway.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of revoked tokens and users, built once and then only read. Token ids are stored
+ * as 64-bit fingerprints in an open-addressing table of {@code long}s, 16 to 32 bytes per entry, with a Bloom
+ * filter of about 10 bits per entry in front. Most tokens are not revoked, and for those the lookup
+ * usually ends at the first clear bit of the much smaller filter, without touching the table.
+ *
+ * <p>Two different ids share a fingerprint with probability around {@code n / 2^64}, about one in
+ * 10^13 lookups at a million entries; such a token would be treated as revoked.
+ *
+ * <p>A user cutoff revokes every token of that user issued at or before the cutoff.
+ */
+public final class RevocationIndex {
+
+    public static final RevocationIndex EMPTY = new RevocationIndex(List.of(), Map.of());
+
+    private static final int BLOOM_HASHES = 7;
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+
+    private final long[] bloom;
+    private final int bloomMask;
+    private final long[] table;
+    private final int tableMask;
+    private final int tokens;
+    private final Map<String, Long> userCutoffs;
+
+    public RevocationIndex(Collection<String> tokenIds, Map<String, Long> userCutoffs) {
+        int bloomBits = Math.max(64, tableSize((long) tokenIds.size() * BLOOM_BITS_PER_ENTRY));
+        this.bloom = new long[bloomBits >>> 6];
+        this.bloomMask = bloomBits - 1;
+        // Kept at most half full so probe sequences stay short
+        this.table = new long[Math.max(2, tableSize(tokenIds.size() * 2L))];
+        this.tableMask = table.length - 1;
+        int added = 0;
+        for (String tokenId : tokenIds) {
+            if (insert(fingerprint(tokenId))) {
+                added++;
+            }
+        }
+        this.tokens = added;
+        this.userCutoffs = Map.copyOf(userCutoffs);
+    }
+
+    private static int tableSize(long minimum) {
+        if (minimum > 1 << 30) {
+            throw new IllegalArgumentException("Too many revocation entries: " + minimum);
+        }
+        return Integer.highestOneBit((int) Math.max(1, minimum - 1)) << 1;
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        return isRevoked(token.tokenId(), token.userId(), token.issuedAtMillis());
+    }
+
+    public boolean isRevoked(String tokenId, String userId, long issuedAtMillis) {
+        if (tokenId != null && tokens > 0 && containsToken(tokenId)) {
+            return true;
+        }
+        if (userId == null || userCutoffs.isEmpty()) {
+            return false;
+        }
+        Long cutoff = userCutoffs.get(userId);
+        return cutoff != null && issuedAtMillis <= cutoff;
+    }
+
+    public boolean containsToken(String tokenId) {
+        long fingerprint = fingerprint(tokenId);
+        return mightContain(fingerprint) && tableContains(fingerprint);
+    }
+
+    public int tokens() {
+        return tokens;
+    }
+
+    public int users() {
+        return userCutoffs.size();
+    }
+
+    private boolean insert(long fingerprint) {
+        int slot = (int) fingerprint & tableMask;
+        while (table[slot] != 0) {
+            if (table[slot] == fingerprint) {
+                return false;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        table[slot] = fingerprint;
+        // Double hashing over the two halves of the fingerprint gives the filter's probe positions
+        int h1 = (int) (fingerprint >>> 32);
+        int h2 = (int) (fingerprint >>> 16) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+        return true;
+    }
+
+    private boolean mightContain(long fingerprint) {
+        int h1 = (int) (fingerprint >>> 32);
+        int h2 = (int) (fingerprint >>> 16) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tableContains(long fingerprint) {
+        int slot = (int) fingerprint & tableMask;
+        long stored;
+        while ((stored = table[slot]) != 0) {
+            if (stored == fingerprint) {
+                return true;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return false;
+    }
+
+    // FNV-1a over the chars, finished with the SplitMix64 mixer so every bit depends on every char.
+    // Zero marks an empty slot, so it is never a fingerprint.
+    static long fingerprint(String tokenId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < tokenId.length(); i++) {
+            h ^= tokenId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return h != 0 ? h : 1;
+    }
+}
@@ -0,0 +1,8 @@
+package io.github.johneliud.api_gateway.util;
+
+/**
+ * What the gateway keeps of a verified JWT. {@code tokenId} is the {@code jti} claim, null when absent;
+ * {@code issuedAtMillis} is {@link Long#MIN_VALUE} when the token has no {@code iat}.
+ */
+public record VerifiedToken(String userId, String role, String tokenId, long issuedAtMillis, long expiresAtMillis) {
+}
@@ -0,0 +1,72 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogRingTest {
+
+    @Test
+    void fullRing_rejectsUntilDrained() {
+        AccessLogRing<Integer> ring = new AccessLogRing<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, ring.drain(drained::add, 2));
+        assertTrue(ring.offer(4));
+        ring.drain(drained::add, 10);
+
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void concurrentProducers_loseNothingWhileConsumerDrains() throws InterruptedException {
+        AccessLogRing<Integer> ring = new AccessLogRing<>(1024);
+        int producers = 8;
+        int perProducer = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        start.countDown();
+        while (seen.size() < producers * perProducer) {
+            ring.drain(value -> assertTrue(seen.add(value), "duplicate " + value), 256);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(producers * perProducer, seen.size());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void capacity_mustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogRing<>(1000));
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTest {
+
+    @TempDir
+    Path dir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        file = dir.resolve("access.log");
+    }
+
+    private AccessLog accessLog(DataSize maxFileSize, int bufferSize, int batchSize, int sampleWhenBusy) {
+        return new AccessLog(true, file, maxFileSize, 2, bufferSize, batchSize, Duration.ofMillis(10), sampleWhenBusy,
+                Duration.ofMinutes(1), meterRegistry);
+    }
+
+    private static AccessEvent event(String path, int status) {
+        return new AccessEvent(1_700_000_000_000L, "orders", "GET", path, status, 12_500_000, "10.0.0.1",
+                "user-1", null, false, null);
+    }
+
+    private static AccessEvent denied(String key) {
+        return new AccessEvent(1_700_000_000_000L, "product-list", "GET", "/api/products", 429, 100_000,
+                "10.0.0.9", null, key, true, null);
+    }
+
+    private List<String> lines(Path path) throws IOException {
+        return Files.readAllLines(path);
+    }
+
+    @Test
+    void events_areWrittenAsJsonLines() throws Exception {
+        AccessLog accessLog = accessLog(DataSize.ofMegabytes(1), 1024, 64, 10);
+        accessLog.afterPropertiesSet();
+
+        accessLog.record(event("/api/orders/o1", 200));
+        accessLog.record(new AccessEvent(1_700_000_000_000L, "orders", "GET", "/api/orders/\"x\"", 401, 50_000,
+                "10.0.0.2", null, "orders:user:u2", false, "ExpiredJwtException"));
+        accessLog.destroy();
+
+        List<String> lines = lines(file);
+        assertEquals(2, lines.size());
+        assertEquals("{\"ts\":\"2023-11-14T22:13:20Z\",\"type\":\"access\",\"route\":\"orders\",\"method\":\"GET\","
+                + "\"path\":\"/api/orders/o1\",\"status\":200,\"latency_ms\":12.5,\"client\":\"10.0.0.1\","
+                + "\"principal\":\"user-1\"}", lines.get(0));
+        assertTrue(lines.get(1).contains("\"path\":\"/api/orders/\\\"x\\\"\""), lines.get(1));
+        assertTrue(lines.get(1).contains("\"rate_limit\":\"allowed\",\"rate_limit_key\":\"orders:user:u2\""));
+        assertTrue(lines.get(1).contains("\"auth_failure\":\"ExpiredJwtException\""));
+    }
+
+    @Test
+    void repeatedDenials_areSummarisedPerKey() throws Exception {
+        AccessLog accessLog = accessLog(DataSize.ofMegabytes(1), 1024, 64, 10);
+        accessLog.afterPropertiesSet();
+
+        for (int i = 0; i < 1000; i++) {
+            accessLog.record(denied("product-list:ip:10.0.0.9"));
+        }
+        accessLog.record(denied("product-list:ip:10.0.0.10"));
+        accessLog.destroy();
+
+        List<String> lines = lines(file);
+        assertEquals(2, lines.stream().filter(line -> line.contains("\"rate_limit\":\"denied\"")).count());
+        List<String> summaries = lines.stream().filter(line -> line.contains("rate_limit_summary")).toList();
+        assertEquals(1, summaries.size());
+        assertTrue(summaries.getFirst().contains("\"rate_limit_key\":\"product-list:ip:10.0.0.9\",\"suppressed\":999"),
+                summaries.getFirst());
+        assertEquals(999, meterRegistry.get("gateway.accesslog.suppressed").counter().count());
+    }
+
+    @Test
+    void fullRing_dropsEventsAndNotesTheGap() throws Exception {
+        AccessLog accessLog = accessLog(DataSize.ofMegabytes(1), 4, 64, 1);
+
+        // The writer is not running yet, so nothing drains the ring
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (accessLog.record(event("/api/orders/" + i, 200))) {
+                accepted++;
+            }
+        }
+        accessLog.afterPropertiesSet();
+        accessLog.destroy();
+
+        assertEquals(4, accepted);
+        assertEquals(6, meterRegistry.get("gateway.accesslog.dropped").tag("reason", "full").counter().count());
+        List<String> lines = lines(file);
+        assertTrue(lines.getFirst().contains("\"type\":\"dropped\",\"count\":6"), lines.getFirst());
+        assertEquals(4, lines.stream().filter(line -> line.contains("\"type\":\"access\"")).count());
+    }
+
+    @Test
+    void busyRing_samplesRoutineEventsButKeepsFailures() {
+        AccessLog accessLog = accessLog(DataSize.ofMegabytes(1), 8, 64, 1_000_000);
+
+        int routine = 0;
+        for (int i = 0; i < 8; i++) {
+            if (accessLog.record(event("/api/orders/" + i, 200))) {
+                routine++;
+            }
+        }
+
+        // Sampling starts once more than 6 of the 8 slots are taken
+        assertEquals(7, routine);
+        assertEquals(1, meterRegistry.get("gateway.accesslog.dropped").tag("reason", "sampled").counter().count());
+        assertTrue(accessLog.record(event("/api/orders/failed", 502)));
+    }
+
+    @Test
+    void largeFile_isRotatedKeepingMaxHistory() throws Exception {
+        // One event per write, so the file is checked against its size limit before every line
+        AccessLog accessLog = accessLog(DataSize.ofBytes(1024), 1024, 1, 10);
+        accessLog.afterPropertiesSet();
+
+        for (int i = 0; i < 60; i++) {
+            accessLog.record(event("/api/orders/" + i, 200));
+        }
+        accessLog.destroy();
+
+        assertTrue(Files.size(file) <= 1024);
+        assertTrue(Files.exists(dir.resolve("access.log.1")));
+        assertTrue(Files.exists(dir.resolve("access.log.2")));
+        assertFalse(Files.exists(dir.resolve("access.log.3")));
+        assertTrue(lines(file).getLast().contains("\"path\":\"/api/orders/59\""));
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebHandler;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Serves requests on a single event loop, as a gateway worker does, while {@link EventLoopStallDetector}
+ * reports any task that holds the loop for more than 50 ms.
+ */
+class BlockingOffloadTest {
+
+    private final Set<String> resumedOn = ConcurrentHashMap.newKeySet();
+
+    private SimpleMeterRegistry meterRegistry;
+    private BlockingOffload offload;
+    private LoopResources loops;
+    private DisposableServer server;
+    private EventLoopStallDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        offload = new BlockingOffload(64, meterRegistry);
+        loops = LoopResources.create("test-http", 1, 1, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (detector != null) {
+            detector.close();
+        }
+        if (server != null) {
+            server.disposeNow();
+        }
+        loops.disposeLater().block(Duration.ofSeconds(5));
+        offload.destroy();
+    }
+
+    private String start(WebHandler handler) throws InterruptedException {
+        server = HttpServer.create()
+                .port(0)
+                .runOn(loops)
+                .handle(new ReactorHttpHandlerAdapter(WebHttpHandlerBuilder.webHandler(handler).build()))
+                .bindNow();
+        detector = new EventLoopStallDetector(loops.onServer(true), Duration.ofMillis(50));
+        // Lets the first heartbeat learn the loop thread before any request arrives
+        Thread.sleep(20);
+        return "http://localhost:" + server.port();
+    }
+
+    private List<String> getAll(String url, int requests) {
+        return Flux.range(0, requests)
+                .flatMap(i -> HttpClient.create().get().uri(url).responseContent().aggregate().asString())
+                .collectList()
+                .block(Duration.ofSeconds(30));
+    }
+
+    private Mono<Void> respond(ServerWebExchange exchange, String body) {
+        resumedOn.add(Thread.currentThread().getName());
+        return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                .wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void blockingSection_runsOffTheEventLoopAndResumesOnIt() throws InterruptedException {
+        String url = start(exchange -> offload.call(exchange, "key-lookup", () -> {
+                    Thread.sleep(100);
+                    return "key";
+                })
+                .flatMap(key -> respond(exchange, key)));
+
+        long start = System.nanoTime();
+        List<String> bodies = getAll(url, 20);
+        long millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(20, bodies.size());
+        assertTrue(bodies.stream().allMatch("key"::equals));
+        // Twenty 100 ms sections on one loop would take two seconds if they ran on it one after another
+        assertTrue(millis < 1_500, "requests took " + millis + "ms");
+        assertTrue(detector.stalls().isEmpty(), () -> "event loop blocked:\n" + detector.stalls());
+        assertEquals(1, resumedOn.size());
+        assertTrue(resumedOn.iterator().next().startsWith("test-http"), "resumed on " + resumedOn);
+        assertEquals(20, meterRegistry.get("gateway.blocking.time").tag("section", "key-lookup").timer().count());
+    }
+
+    @Test
+    void blockingOnTheEventLoop_isReported() throws InterruptedException {
+        String url = start(exchange -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return Mono.error(e);
+            }
+            return respond(exchange, "key");
+        });
+
+        getAll(url, 3);
+
+        assertFalse(detector.stalls().isEmpty());
+        EventLoopStallDetector.Stall stall = detector.stalls().getFirst();
+        assertTrue(stall.thread().startsWith("test-http"));
+        assertTrue(stall.stack().stream().anyMatch(frame -> frame.getMethodName().equals("sleep")), stall::toString);
+    }
+
+    @Test
+    void concurrentSections_areCappedAtMaxConcurrency() {
+        BlockingOffload limited = new BlockingOffload(2, new SimpleMeterRegistry());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders"));
+        try {
+            Flux.range(0, 8)
+                    .flatMap(i -> limited.run(exchange, "audit", () -> {
+                        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(30);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        running.decrementAndGet();
+                    }))
+                    .blockLast(Duration.ofSeconds(10));
+        } finally {
+            limited.destroy();
+        }
+
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    void cancelledSection_interruptsVirtualThread() throws InterruptedException {
+        AtomicInteger interrupted = new AtomicInteger();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders"));
+
+        offload.run(exchange, "jwks", () -> {
+                    try {
+                        Thread.sleep(5_000);
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                    }
+                })
+                .timeout(Duration.ofMillis(50))
+                .onErrorComplete()
+                .block(Duration.ofSeconds(5));
+        Thread.sleep(100);
+
+        assertEquals(1, interrupted.get());
+    }
+}
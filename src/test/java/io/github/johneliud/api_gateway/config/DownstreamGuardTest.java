@@ -0,0 +1,118 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownstreamGuardTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofMillis(100).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+    private DownstreamGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        guard = new DownstreamGuard(new DownstreamGuard.Settings(
+                10, 4, 0.5, Duration.ofSeconds(5), 2, 4, 1, 8, 2.0, 0.5), clock::get);
+    }
+
+    private void call(long rttNanos, boolean failed) {
+        assertEquals(DownstreamGuard.Decision.ACCEPTED, guard.tryAcquire());
+        guard.onResult(rttNanos, failed);
+    }
+
+    @Test
+    void failureRateAboveThreshold_opensCircuit() {
+        call(FAST, false);
+        call(FAST, true);
+        call(FAST, false);
+        assertEquals(DownstreamGuard.Circuit.CLOSED, guard.getCircuit());
+        call(FAST, true);
+
+        assertEquals(DownstreamGuard.Circuit.OPEN, guard.getCircuit());
+        assertEquals(DownstreamGuard.Decision.CIRCUIT_OPEN, guard.tryAcquire());
+    }
+
+    @Test
+    void openCircuit_halfOpensAfterDurationAndClosesOnSuccessfulProbes() {
+        for (int i = 0; i < 4; i++) {
+            call(FAST, true);
+        }
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        call(FAST, false);
+        assertEquals(DownstreamGuard.Circuit.HALF_OPEN, guard.getCircuit());
+        call(FAST, false);
+        assertEquals(DownstreamGuard.Circuit.CLOSED, guard.getCircuit());
+    }
+
+    @Test
+    void listener_hearsOnlyStateChanges() {
+        List<String> transitions = new ArrayList<>();
+        guard = new DownstreamGuard(new DownstreamGuard.Settings(
+                10, 4, 0.5, Duration.ofSeconds(5), 2, 4, 1, 8, 2.0, 0.5), clock::get,
+                (from, to) -> transitions.add(from + "->" + to));
+        for (int i = 0; i < 4; i++) {
+            call(FAST, true);
+        }
+        for (int i = 0; i < 10; i++) {
+            guard.tryAcquire();
+        }
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        call(FAST, false);
+        call(FAST, false);
+
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    void failedProbe_reopensCircuit() {
+        for (int i = 0; i < 4; i++) {
+            call(FAST, true);
+        }
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        call(FAST, true);
+        assertEquals(DownstreamGuard.Circuit.OPEN, guard.getCircuit());
+    }
+
+    @Test
+    void limitReached_rejectsUntilSlotReleased() {
+        for (int i = 0; i < 4; i++) {
+            assertEquals(DownstreamGuard.Decision.ACCEPTED, guard.tryAcquire());
+        }
+        assertEquals(DownstreamGuard.Decision.LIMIT_EXCEEDED, guard.tryAcquire());
+
+        guard.release();
+        assertEquals(DownstreamGuard.Decision.ACCEPTED, guard.tryAcquire());
+    }
+
+    @Test
+    void fastResponsesUnderLoad_raiseLimit() {
+        for (int i = 0; i < 4; i++) {
+            guard.tryAcquire();
+        }
+        guard.onResult(FAST, false);
+        guard.onResult(FAST, false);
+
+        assertEquals(6, guard.getLimit());
+    }
+
+    @Test
+    void slowResponses_shedLimitToMinimum() {
+        call(FAST, false);
+        for (int i = 0; i < 5; i++) {
+            call(SLOW, false);
+        }
+        assertEquals(1, guard.getLimit());
+        assertEquals(DownstreamGuard.Circuit.CLOSED, guard.getCircuit());
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Watches the event loops of a group for blocking. A watcher thread keeps one heartbeat task queued on
+ * each loop; a heartbeat that has not run within {@code threshold} means the loop is stuck in a task, and
+ * the loop thread's stack at that moment is recorded so the test failure shows what was blocking.
+ */
+class EventLoopStallDetector implements AutoCloseable {
+
+    record Stall(String thread, List<StackTraceElement> stack) {
+
+        @Override
+        public String toString() {
+            return thread + " blocked at\n\t" + stack.stream().map(String::valueOf).collect(Collectors.joining("\n\t"));
+        }
+    }
+
+    private final List<Heartbeat> heartbeats = new ArrayList<>();
+    private final List<Stall> stalls = new CopyOnWriteArrayList<>();
+    private final long thresholdNanos;
+    private final Thread watcher;
+
+    EventLoopStallDetector(EventExecutorGroup group, Duration threshold) {
+        this.thresholdNanos = threshold.toNanos();
+        for (EventExecutor loop : group) {
+            heartbeats.add(new Heartbeat(loop));
+        }
+        this.watcher = Thread.ofPlatform().daemon().name("event-loop-stall-detector").start(this::watch);
+    }
+
+    List<Stall> stalls() {
+        return List.copyOf(stalls);
+    }
+
+    private void watch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            heartbeats.forEach(heartbeat -> heartbeat.check(now));
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        watcher.interrupt();
+    }
+
+    private final class Heartbeat {
+
+        private final EventExecutor loop;
+        private volatile Thread thread;
+        private volatile long queuedAt = -1;
+        private boolean reported;
+
+        Heartbeat(EventExecutor loop) {
+            this.loop = loop;
+        }
+
+        void check(long now) {
+            long queued = queuedAt;
+            if (queued < 0) {
+                queuedAt = now;
+                reported = false;
+                loop.execute(() -> {
+                    thread = Thread.currentThread();
+                    queuedAt = -1;
+                });
+            } else if (!reported && now - queued > thresholdNanos && thread != null) {
+                reported = true;
+                stalls.add(new Stall(thread.getName(), Arrays.asList(thread.getStackTrace())));
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileRouteDefinitionLocatorTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private Path file;
+    private FileRouteDefinitionLocator locator;
+
+    private static String table(String... ids) {
+        StringBuilder yaml = new StringBuilder("routes:\n");
+        for (String id : ids) {
+            yaml.append("  - id: ").append(id).append('\n')
+                    .append("    uri: http://localhost:9000\n")
+                    .append("    predicates: [Path=/api/").append(id).append("/**]\n");
+        }
+        return yaml.toString();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("routes.yml");
+        Files.writeString(file, table("users"));
+        locator = new FileRouteDefinitionLocator(file, new RouteTableLoader(new MockEnvironment()),
+                events::add, Duration.ofMillis(50));
+        locator.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        locator.destroy();
+    }
+
+    private List<String> routeIds() {
+        return locator.getRouteDefinitions().map(RouteDefinition::getId).collectList().block();
+    }
+
+    @Test
+    void startup_loadsTableWithoutRefreshEvent() {
+        assertEquals(List.of("users"), routeIds());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void reload_swapsTableAndRequestsRefresh() throws IOException {
+        Files.writeString(file, table("users", "orders"));
+
+        assertTrue(locator.reload());
+        assertEquals(List.of("users", "orders"), routeIds());
+        assertEquals(1, events.size());
+        assertInstanceOf(RefreshRoutesEvent.class, events.getFirst());
+    }
+
+    @Test
+    void unchangedContent_isNotReloaded() throws IOException {
+        Files.writeString(file, table("users"));
+
+        assertFalse(locator.reload());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void invalidFile_keepsCurrentTable() throws IOException {
+        Files.writeString(file, "routes:\n  - id: broken\n");
+
+        assertThrows(IllegalArgumentException.class, locator::reload);
+        assertEquals(List.of("users"), routeIds());
+        assertTrue(events.isEmpty());
+    }
+
+    // An editor saving in several writes must cost one refresh, not one per write
+    @Test
+    void burstOfChanges_causesSingleRefresh() throws Exception {
+        Files.writeString(file, table("users", "orders", "cart"));
+        for (int i = 0; i < 20; i++) {
+            locator.scheduleReload();
+        }
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (events.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+
+        assertEquals(1, events.size());
+        assertEquals(List.of("users", "orders", "cart"), routeIds());
+    }
+}
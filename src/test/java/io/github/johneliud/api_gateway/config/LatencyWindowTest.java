@@ -0,0 +1,34 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyWindowTest {
+
+    @Test
+    void percentile_unknownUntilMinSamples() {
+        LatencyWindow window = new LatencyWindow(100, 0.9, 10);
+        for (int i = 0; i < 9; i++) {
+            window.record(i);
+        }
+        assertEquals(-1, window.percentile());
+
+        window.record(9);
+        assertEquals(8, window.percentile());
+    }
+
+    @Test
+    void percentile_followsRecentSamplesOnly() {
+        LatencyWindow window = new LatencyWindow(100, 0.95, 10);
+        for (int i = 1; i <= 100; i++) {
+            window.record(1_000);
+        }
+        assertEquals(1_000, window.percentile());
+
+        for (int i = 1; i <= 100; i++) {
+            window.record(i);
+        }
+        assertEquals(95, window.percentile());
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyRateLimitBackendTest {
+
+    private InMemoryProxyManager sharedStore;
+    private ProxyRateLimitBackend replicaA;
+    private ProxyRateLimitBackend replicaB;
+
+    @BeforeEach
+    void setUp() {
+        sharedStore = new InMemoryProxyManager();
+        replicaA = new ProxyRateLimitBackend(sharedStore, 1_000, 50, Duration.ofSeconds(10), new SimpleMeterRegistry());
+        replicaB = new ProxyRateLimitBackend(sharedStore, 1_000, 50, Duration.ofSeconds(10), new SimpleMeterRegistry());
+    }
+
+    private static BucketConfiguration limit(long capacity) {
+        return BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(capacity, Duration.ofMinutes(15))))
+                .build();
+    }
+
+    @Test
+    void tryConsume_acrossReplicas_sharesOneLimit() {
+        BucketConfiguration login = limit(3);
+        assertTrue(replicaA.resolveBucket("ip-1", login).tryConsume(1));
+        assertTrue(replicaB.resolveBucket("ip-1", login).tryConsume(1));
+        assertTrue(replicaA.resolveBucket("ip-1", login).tryConsume(1));
+        assertFalse(replicaB.resolveBucket("ip-1", login).tryConsume(1));
+        assertFalse(replicaA.resolveBucket("ip-1", login).tryConsume(1));
+    }
+
+    @Test
+    void tryConsume_differentKeys_independentBuckets() {
+        BucketConfiguration login = limit(1);
+        assertTrue(replicaA.resolveBucket("ip-2", login).tryConsume(1));
+        assertTrue(replicaB.resolveBucket("ip-3", login).tryConsume(1));
+    }
+
+    @Test
+    void tryConsume_largeLimit_batchesRemoteRoundTrips() {
+        BucketConfiguration api = limit(10_000);
+        for (int i = 0; i < 500; i++) {
+            assertTrue(replicaA.resolveBucket("user-1", api).tryConsume(1));
+        }
+        assertTrue(sharedStore.roundTrips() < 100, "round trips: " + sharedStore.roundTrips());
+    }
+
+    @Test
+    void tryConsumeAsync_acrossReplicas_sharesOneLimit() {
+        BucketConfiguration login = limit(2);
+        assertTrue(replicaA.tryConsume("ip-4", login).block(Duration.ofSeconds(1)).isConsumed());
+        assertTrue(replicaB.tryConsume("ip-4", login).block(Duration.ofSeconds(1)).isConsumed());
+        ConsumptionProbe rejected = replicaA.tryConsume("ip-4", login).block(Duration.ofSeconds(1));
+        assertFalse(rejected.isConsumed());
+        assertTrue(rejected.getNanosToWaitForRefill() > 0);
+    }
+
+    @Test
+    void tryConsumeAsync_isLazyAndBatchesLargeLimits() {
+        BucketConfiguration api = limit(10_000);
+        replicaA.tryConsume("user-2", api);
+        assertEquals(0, sharedStore.roundTrips());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(replicaA.tryConsume("user-2", api).block(Duration.ofSeconds(1)).isConsumed());
+        }
+        assertTrue(sharedStore.roundTrips() < 100, "round trips: " + sharedStore.roundTrips());
+    }
+
+    @Test
+    void batchTokensFor_smallLimit_disablesBatching() {
+        assertEquals(0, replicaA.batchTokensFor(limit(5)));
+        assertEquals(50, replicaA.batchTokensFor(limit(10_000)));
+    }
+}
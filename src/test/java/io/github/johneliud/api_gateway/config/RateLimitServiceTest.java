@@ -1,21 +1,31 @@
 package io.github.johneliud.api_gateway.config;
 
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class RateLimitServiceTest {
 
+    private final AtomicLong ticks = new AtomicLong();
+    private final Ticker ticker = ticks::get;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LocalRateLimitBackend backend;
     private RateLimitService rateLimitService;
 
     @BeforeEach
     void setUp() {
-        rateLimitService = new RateLimitService();
-        ReflectionTestUtils.setField(rateLimitService, "capacity", 3);
-        ReflectionTestUtils.setField(rateLimitService, "refillTokens", 3);
-        ReflectionTestUtils.setField(rateLimitService, "refillMinutes", 15);
+        meterRegistry = new SimpleMeterRegistry();
+        backend = new LocalRateLimitBackend(10_000, meterRegistry, ticker);
+        rateLimitService = new RateLimitService(backend, 3, 3, 15);
     }
 
     @Test
@@ -36,4 +46,49 @@ class RateLimitServiceTest {
         assertTrue(rateLimitService.tryConsume("ip-3"));
         assertTrue(rateLimitService.tryConsume("ip-4"));
     }
+
+    @Test
+    void tryConsume_idleForRefillPeriod_bucketReclaimed() {
+        rateLimitService.tryConsume("ip-5");
+        ticks.addAndGet(Duration.ofMinutes(15).toNanos());
+        assertEquals(0, backend.size());
+    }
+
+    @Test
+    void tryConsume_activeWithinRefillPeriod_bucketRetained() {
+        for (int i = 0; i < 3; i++) {
+            rateLimitService.tryConsume("ip-6");
+        }
+        ticks.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertFalse(rateLimitService.tryConsume("ip-6"));
+        assertEquals(1, backend.size());
+    }
+
+    @Test
+    void tryConsume_changedConfiguration_replacesBucketAndExpiry() {
+        BucketConfiguration tight = BucketConfiguration.builder()
+                .addLimit(Bandwidth.builder().capacity(1).refillGreedy(1, Duration.ofHours(1)).build())
+                .build();
+        BucketConfiguration loose = BucketConfiguration.builder()
+                .addLimit(Bandwidth.builder().capacity(10).refillGreedy(10, Duration.ofMinutes(1)).build())
+                .build();
+        assertTrue(rateLimitService.tryConsume("ip-7", tight).isConsumed());
+        assertFalse(rateLimitService.tryConsume("ip-7", tight).isConsumed());
+
+        // The reloaded limit applies at once, and the bucket idles out after its own refill time
+        assertTrue(rateLimitService.tryConsume("ip-7", loose).isConsumed());
+        ticks.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertEquals(0, backend.size());
+    }
+
+    @Test
+    void tryConsume_millionsOfDistinctKeys_storeStaysBounded() {
+        for (int i = 0; i < 2_000_000; i++) {
+            rateLimitService.tryConsume("10." + (i >>> 16) + "." + ((i >>> 8) & 0xff) + "." + (i & 0xff));
+        }
+        assertTrue(backend.size() <= 10_000);
+        assertTrue(meterRegistry.get("cache.evictions").tag("cache", "rate-limit.buckets").functionCounter().count() > 0);
+        assertTrue(meterRegistry.get("rate.limit.buckets.memory.estimate").gauge().value()
+                <= 10_000 * BucketStore.ESTIMATED_ENTRY_BYTES);
+    }
 }
@@ -0,0 +1,41 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryBudgetTest {
+
+    @Test
+    void extraAttempts_stayWithinRatioOfRequests() {
+        RetryBudget budget = new RetryBudget(0.1, 5);
+        int granted = 0;
+        for (int i = 0; i < 1_000; i++) {
+            budget.onRequest();
+            // Every request would like a retry; the budget decides
+            if (budget.tryAcquire()) {
+                granted++;
+            }
+        }
+        assertTrue(granted <= 100, "granted " + granted);
+        assertTrue(granted >= 99, "granted " + granted);
+    }
+
+    @Test
+    void quietPeriod_cannotSaveUpMoreThanMaxBalance() {
+        RetryBudget budget = new RetryBudget(0.5, 3);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+        int granted = 0;
+        while (budget.tryAcquire()) {
+            granted++;
+        }
+        assertEquals(3, granted);
+    }
+
+    @Test
+    void emptyBudget_refusesExtraAttempts() {
+        assertFalse(new RetryBudget(0.1, 10).tryAcquire());
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.github.johneliud.api_gateway.util.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevocationListTest {
+
+    @TempDir
+    Path directory;
+
+    private final long now = System.currentTimeMillis();
+    private final long inAnHour = now / 1000 + 3600;
+    private SimpleMeterRegistry meterRegistry;
+    private Path file;
+    private RevocationList revocations;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        file = directory.resolve("revoked.txt");
+        Files.writeString(file, "# revoked at the helpdesk\ntoken stolen-1 " + inAnHour + "\n");
+        revocations = new RevocationList(file.toString(), Duration.ofMillis(50), Duration.ofHours(24),
+                Duration.ofMinutes(5), meterRegistry);
+        revocations.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        revocations.destroy();
+    }
+
+    private VerifiedToken token(String tokenId, String userId, long issuedAtMillis) {
+        return new VerifiedToken(userId, "CLIENT", tokenId, issuedAtMillis, now + 3_600_000);
+    }
+
+    @Test
+    void startup_loadsTheFile() {
+        assertTrue(revocations.isRevoked(token("stolen-1", "alice", now)));
+        assertFalse(revocations.isRevoked(token("fine-1", "alice", now)));
+        assertEquals(1, meterRegistry.get("gateway.revocations.entries").tag("kind", "token").gauge().value());
+    }
+
+    @Test
+    void fileChange_replacesTheFileEntries() throws Exception {
+        Files.writeString(file, "token stolen-2 " + inAnHour + "\nuser bob " + now / 1000 + "\n");
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (revocations.isRevoked(token("stolen-1", "alice", now)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(revocations.isRevoked(token("stolen-1", "alice", now)));
+        assertTrue(revocations.isRevoked(token("stolen-2", "alice", now)));
+        assertTrue(revocations.isRevoked(token(null, "bob", now - 60_000)));
+        assertFalse(revocations.isRevoked(token(null, "bob", now + 60_000)), "issued after the cutoff");
+    }
+
+    @Test
+    void malformedFile_keepsCurrentEntries() throws Exception {
+        Files.writeString(file, "token only-two-fields\n");
+
+        assertThrows(IllegalArgumentException.class, revocations::reload);
+        assertTrue(revocations.isRevoked(token("stolen-1", "alice", now)));
+    }
+
+    @Test
+    void adminRevocations_applyAtOnce_andSurviveFileReloads() throws IOException {
+        revocations.revokeToken("stolen-3", null);
+        revocations.revokeUser("carol");
+        assertTrue(revocations.isRevoked(token("stolen-3", "alice", now)));
+        assertTrue(revocations.isRevoked(token(null, "carol", now)));
+
+        revocations.reload();
+        assertTrue(revocations.isRevoked(token("stolen-3", "alice", now)));
+
+        assertTrue(revocations.removeToken("stolen-3"));
+        assertFalse(revocations.isRevoked(token("stolen-3", "alice", now)));
+    }
+
+    @Test
+    void lapsedEntries_leaveTheIndex() {
+        revocations.revokeToken("expired", now - 1);
+
+        assertFalse(revocations.isRevoked(token("expired", "alice", now)));
+        assertEquals(1, revocations.getIndex().tokens());
+    }
+
+    @Test
+    void parse_rejectsUnknownKinds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RevocationList.parse(List.of("session abc 123"), Duration.ofHours(1)));
+        assertEquals(1, RevocationList.parse(List.of("", "# none", "user a 1"), Duration.ofHours(1)).users().size());
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteIndexTest {
+
+    private static Route route(String id, String path, String method) {
+        Route.AsyncBuilder builder = Route.async()
+                .id(id)
+                .uri("http://localhost")
+                .predicate(exchange -> true)
+                .metadata(RouteIndex.PATH_METADATA, path);
+        if (method != null) {
+            builder.metadata(RouteIndex.METHOD_METADATA, method);
+        }
+        return builder.build();
+    }
+
+    private final RouteIndex index = RouteIndex.compile(List.of(
+            route("user-register", "/api/users/register", "POST"),
+            route("user-by-id", "/api/users/{id}", "GET"),
+            route("user-profile", "/api/users/profile/**", null),
+            route("product-my-products", "/api/products/my-products", "GET"),
+            route("product-list", "/api/products", "GET"),
+            route("product-by-id", "/api/products/{id}", "GET"),
+            route("product-auth", "/api/products/**", null)));
+
+    private String match(String path, HttpMethod method) {
+        int position = index.match(path, method);
+        return position < 0 ? null : index.getRoutes().get(position).getId();
+    }
+
+    @Test
+    void specificRoute_winsOverCatchAll() {
+        assertEquals("product-my-products", match("/api/products/my-products", HttpMethod.GET));
+        assertEquals("product-by-id", match("/api/products/p1", HttpMethod.GET));
+        assertEquals("product-list", match("/api/products", HttpMethod.GET));
+    }
+
+    @Test
+    void methodMismatch_fallsThroughToLaterRoute() {
+        assertEquals("product-auth", match("/api/products/p1", HttpMethod.PUT));
+        assertEquals("product-auth", match("/api/products", HttpMethod.POST));
+    }
+
+    @Test
+    void earlierVariableRoute_keepsPrecedence() {
+        // Same as linear evaluation: user-by-id is declared before user-profile
+        assertEquals("user-by-id", match("/api/users/profile", HttpMethod.GET));
+        assertEquals("user-profile", match("/api/users/profile", HttpMethod.PUT));
+        assertEquals("user-profile", match("/api/users/profile/stats", HttpMethod.GET));
+    }
+
+    @Test
+    void trailingSlash_matchesLikeWithout() {
+        assertEquals("product-list", match("/api/products/", HttpMethod.GET));
+    }
+
+    @Test
+    void unknownPath_noMatch() {
+        assertNull(match("/api/unknown", HttpMethod.GET));
+        assertNull(match("/", HttpMethod.GET));
+    }
+
+    @Test
+    void routeWithoutMetadata_marksWhereIndexStops() {
+        List<Route> routes = new ArrayList<>(index.getRoutes());
+        routes.add(2, Route.async().id("custom").uri("http://localhost").predicate(exchange -> true).build());
+
+        assertEquals(2, RouteIndex.compile(routes).getFirstUnindexed());
+    }
+}
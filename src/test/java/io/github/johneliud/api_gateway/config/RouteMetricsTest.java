@@ -0,0 +1,45 @@
+package io.github.johneliud.api_gateway.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RouteMetrics routeMetrics = new RouteMetrics(meterRegistry);
+
+    private double millis(String route, String phase) {
+        return meterRegistry.get("gateway.route.latency").tag("route", route).tag("phase", phase)
+                .timer().totalTime(TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void proxiedRequest_splitsIntoPhases() {
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        routeMetrics.forRoute("orders").record(0, 2 * ms, 5 * ms, 45 * ms, 46 * ms);
+
+        assertEquals(46, millis("orders", "total"));
+        assertEquals(3, millis("orders", "upstream-connect"));
+        assertEquals(40, millis("orders", "upstream-response"));
+        assertEquals(3, millis("orders", "internal"));
+    }
+
+    @Test
+    void requestAnsweredAtGateway_isAllInternal() {
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        routeMetrics.forRoute("cart").record(10 * ms, 0, 0, 0, 12 * ms);
+
+        assertEquals(2, millis("cart", "internal"));
+        assertEquals(0, meterRegistry.get("gateway.route.latency").tag("route", "cart").tag("phase", "upstream-response")
+                .timer().count());
+    }
+
+    @Test
+    void sameRoute_reusesTimers() {
+        assertSame(routeMetrics.forRoute("orders"), routeMetrics.forRoute("orders"));
+    }
+}
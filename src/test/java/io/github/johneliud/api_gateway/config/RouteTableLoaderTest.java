@@ -0,0 +1,178 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteTableLoaderTest {
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("user.service.url", "http://user-service:8081")
+            .withProperty("product.service.url", "http://product-service:8082")
+            .withProperty("media.service.url", "http://media-service:8085")
+            .withProperty("order.service.url", "http://order-service:8084")
+            .withProperty("response.cache.ttl.users", "60s")
+            .withProperty("response.cache.ttl.products", "30s")
+            .withProperty("response.cache.ttl.media", "10m")
+            .withProperty("response.cache.media.max-entry-bytes", "262144")
+            .withProperty("rate.limit.product-list.per-second", "20")
+            .withProperty("rate.limit.product-list.burst", "40")
+            .withProperty("rate.limit.product-list.per-hour", "5000")
+            .withProperty("rate.limit.orders.per-second", "10")
+            .withProperty("rate.limit.orders.burst", "20")
+            .withProperty("rate.limit.orders.per-hour", "2000")
+            .withProperty("upstream.hedge.percentile", "0.95")
+            .withProperty("upstream.hedge.budget-ratio", "0.1")
+            .withProperty("response.compression.min-bytes", "1024")
+            .withProperty("request.body.product.max-bytes", "5242880")
+            .withProperty("request.body.media.max-bytes", "52428800")
+            .withProperty("request.body.min-bytes-per-second", "1024")
+            .withProperty("request.body.rate-grace", "10s");
+
+    private final RouteTableLoader loader = new RouteTableLoader(environment);
+
+    private RouteTableLoader.RouteTable load(String yaml) throws IOException {
+        return loader.load(new ByteArrayResource(yaml.getBytes(StandardCharsets.UTF_8), "test routes"));
+    }
+
+    private static RouteDefinition route(RouteTableLoader.RouteTable table, String id) {
+        return table.routes().stream().filter(route -> route.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void exampleFile_matchesJavaRouteTable() throws IOException {
+        RouteTableLoader.RouteTable table = loader.load(new FileSystemResource("routes.example.yml"));
+
+        assertEquals(15, table.routes().size());
+        assertEquals("user-register", table.routes().getFirst().getId());
+        assertEquals("cart", table.routes().getLast().getId());
+
+        RouteDefinition productList = route(table, "product-list");
+        assertEquals(URI.create("lb://product"), productList.getUri());
+        assertEquals("/api/products", productList.getMetadata().get(RouteIndex.PATH_METADATA));
+        assertEquals("GET", productList.getMetadata().get(RouteIndex.METHOD_METADATA));
+        assertEquals("CompressionFilter", productList.getFilters().getFirst().getName());
+        assertEquals("RateLimitGatewayFilter", productList.getFilters().get(1).getName());
+        assertEquals(List.of("IP", "40:20/1s;5000:5000/1h", "-4"),
+                List.copyOf(productList.getFilters().get(1).getArgs().values()));
+
+        RouteDefinition mediaById = route(table, "media-by-id");
+        assertEquals(List.of("10m", "262144"), List.copyOf(mediaById.getFilters().get(0).getArgs().values()));
+
+        RouteDefinition mediaAuth = route(table, "media-auth");
+        assertEquals("BodyLimitFilter", mediaAuth.getFilters().getFirst().getName());
+        assertEquals(List.of("52428800", "1024", "10s"), List.copyOf(mediaAuth.getFilters().getFirst().getArgs().values()));
+    }
+
+    @Test
+    void serviceUri_pinnedByFileOrLoadBalanced() throws IOException {
+        RouteTableLoader.RouteTable table = load("""
+                services:
+                  user: http://user-canary:9081
+                routes:
+                  - id: canary
+                    uri: service:user
+                    predicates: [Path=/api/users/**]
+                  - id: stable
+                    uri: service:order
+                    predicates: [Path=/api/orders/**]
+                """);
+
+        assertEquals(URI.create("http://user-canary:9081"), route(table, "canary").getUri());
+        assertEquals(URI.create("lb://order"), route(table, "stable").getUri());
+    }
+
+    @Test
+    void routeWithOtherPredicates_isNotIndexed() throws IOException {
+        RouteTableLoader.RouteTable table = load("""
+                routes:
+                  - id: by-header
+                    uri: http://localhost:9000
+                    predicates: [Path=/api/beta/**, Header=X-Beta]
+                """);
+
+        assertTrue(table.routes().getFirst().getMetadata().isEmpty());
+    }
+
+    @Test
+    void invalidTables_areRejected() {
+        assertThrows(IllegalArgumentException.class, () -> load("""
+                routes:
+                  - id: a
+                    uri: service:billing
+                    predicates: [Path=/api/billing/**]
+                """));
+        assertThrows(IllegalArgumentException.class, () -> load("""
+                routes:
+                  - id: a
+                    uri: http://localhost:9000
+                    predicates: [Path=/a]
+                  - id: a
+                    uri: http://localhost:9000
+                    predicates: [Path=/b]
+                """));
+        assertThrows(IllegalArgumentException.class, () -> load("""
+                routes:
+                  - id: a
+                    uri: http://localhost:9000
+                """));
+    }
+
+    // Reload cost is parse + bind + index compile, paid once off the request path; matching stays
+    // per-request. Bounds are loose so the test only catches order-of-magnitude regressions.
+    @Test
+    void largeTable_reloadsAndMatchesQuickly() throws IOException {
+        StringBuilder yaml = new StringBuilder("routes:\n");
+        for (int i = 0; i < 500; i++) {
+            yaml.append("  - id: route-").append(i).append('\n')
+                    .append("    uri: http://localhost:9000\n")
+                    .append("    predicates:\n")
+                    .append("      - Path=/api/svc").append(i).append("/items/{id}\n")
+                    .append("      - Method=GET\n")
+                    .append("    filters: [AuthenticationFilter, DownstreamProtectionFilter=svc").append(i).append("]\n");
+        }
+
+        long reloadStart = System.nanoTime();
+        RouteTableLoader.RouteTable table = load(yaml.toString());
+        RouteIndex index = RouteIndex.compile(toRoutes(table.routes()));
+        long reloadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - reloadStart);
+
+        int lookups = 100_000;
+        long matchStart = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            int position = index.match("/api/svc" + (i % 500) + "/items/42", HttpMethod.GET);
+            assertEquals(i % 500, position);
+        }
+        long nanosPerMatch = (System.nanoTime() - matchStart) / lookups;
+
+        assertEquals(500, table.routes().size());
+        assertTrue(reloadMillis < 5_000, "reload of 500 routes took " + reloadMillis + "ms");
+        assertTrue(nanosPerMatch < 50_000, "match took " + nanosPerMatch + "ns");
+    }
+
+    private static List<Route> toRoutes(List<RouteDefinition> definitions) {
+        List<Route> routes = new ArrayList<>();
+        for (RouteDefinition definition : definitions) {
+            Route.AsyncBuilder builder = Route.async()
+                    .id(definition.getId())
+                    .uri(definition.getUri())
+                    .predicate(exchange -> true);
+            definition.getMetadata().forEach(builder::metadata);
+            routes.add(builder.build());
+        }
+        return routes;
+    }
+}
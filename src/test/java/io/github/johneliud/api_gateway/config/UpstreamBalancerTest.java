@@ -0,0 +1,150 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamBalancerTest {
+
+    private static final URI FAST = URI.create("http://fast:8080");
+    private static final URI ALSO_FAST = URI.create("http://also-fast:8080");
+    private static final URI SLOW = URI.create("http://slow:8080");
+
+    private final AtomicLong clock = new AtomicLong();
+    private UpstreamBalancer balancer;
+
+    @BeforeEach
+    void setUp() {
+        balancer = new UpstreamBalancer("product", List.of(FAST, ALSO_FAST, SLOW),
+                new UpstreamBalancer.Settings(Duration.ofSeconds(10), 3, Duration.ofSeconds(30), 4, 2),
+                clock::get);
+    }
+
+    private static long millis(long millis) {
+        return Duration.ofMillis(millis).toNanos();
+    }
+
+    private UpstreamBalancer.Instance instance(URI uri) {
+        return balancer.getInstances().stream().filter(i -> i.getUri().equals(uri)).findFirst().orElseThrow();
+    }
+
+    // Sequential calls where each instance answers in its own time
+    private Map<URI, Integer> run(int requests, Map<URI, Long> latencies) {
+        Map<URI, Integer> counts = new HashMap<>();
+        for (int i = 0; i < requests; i++) {
+            UpstreamBalancer.Instance chosen = balancer.choose();
+            long rtt = latencies.get(chosen.getUri());
+            clock.addAndGet(rtt);
+            chosen.onResult(rtt, false);
+            counts.merge(chosen.getUri(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Test
+    void slowInstance_getsLessTraffic() {
+        Map<URI, Integer> counts = run(3_000, Map.of(FAST, millis(5), ALSO_FAST, millis(5), SLOW, millis(80)));
+
+        // Round-robin would send it a third; here it loses every draw against a fast replica
+        assertTrue(counts.getOrDefault(SLOW, 0) < 300, "slow instance got " + counts.get(SLOW));
+        assertTrue(counts.get(FAST) > 1_000);
+        assertTrue(counts.get(ALSO_FAST) > 1_000);
+    }
+
+    @Test
+    void outstandingRequests_spreadLoadBeforeLatencyIsKnown() {
+        for (int i = 0; i < 30; i++) {
+            balancer.choose();
+        }
+
+        for (UpstreamBalancer.Instance instance : balancer.getInstances()) {
+            assertTrue(instance.getOutstanding() >= 5, instance.getUri() + " has " + instance.getOutstanding());
+        }
+    }
+
+    @Test
+    void consecutiveFailures_ejectUntilEjectionTimeElapses() {
+        UpstreamBalancer.Instance slow = instance(SLOW);
+        for (int i = 0; i < 3; i++) {
+            slow.start();
+            slow.onResult(millis(1), true);
+        }
+
+        assertFalse(slow.isAvailable(clock.get()));
+        for (int i = 0; i < 100; i++) {
+            UpstreamBalancer.Instance chosen = balancer.choose();
+            assertNotEquals(SLOW, chosen.getUri());
+            chosen.release();
+        }
+
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(slow.isAvailable(clock.get()));
+    }
+
+    @Test
+    void repeatedEjections_lastLonger() {
+        UpstreamBalancer.Instance slow = instance(SLOW);
+        for (int ejection = 0; ejection < 2; ejection++) {
+            for (int i = 0; i < 3; i++) {
+                slow.start();
+                slow.onResult(millis(1), true);
+            }
+            clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        }
+
+        assertFalse(slow.isAvailable(clock.get()));
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(slow.isAvailable(clock.get()));
+    }
+
+    @Test
+    void successBetweenFailures_resetsCount() {
+        UpstreamBalancer.Instance slow = instance(SLOW);
+        for (int i = 0; i < 6; i++) {
+            slow.start();
+            slow.onResult(millis(1), i % 2 == 0);
+        }
+
+        assertTrue(slow.isAvailable(clock.get()));
+    }
+
+    @Test
+    void failedHealthChecks_removeInstanceUntilHealthy() {
+        UpstreamBalancer.Instance fast = instance(FAST);
+        fast.onHealthCheck(false);
+        assertTrue(fast.isAvailable(clock.get()));
+        fast.onHealthCheck(false);
+        assertFalse(fast.isAvailable(clock.get()));
+
+        fast.onHealthCheck(true);
+        assertTrue(fast.isAvailable(clock.get()));
+    }
+
+    @Test
+    void noAvailableInstance_fallsBackToAll() {
+        for (UpstreamBalancer.Instance instance : balancer.getInstances()) {
+            instance.onHealthCheck(false);
+            instance.onHealthCheck(false);
+        }
+
+        assertNotNull(balancer.choose());
+    }
+
+    @Test
+    void recoveredInstance_isProbedAgainOnceLatencyDecays() {
+        run(500, Map.of(FAST, millis(5), ALSO_FAST, millis(5), SLOW, millis(80)));
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        Map<URI, Integer> counts = run(600, Map.of(FAST, millis(5), ALSO_FAST, millis(5), SLOW, millis(5)));
+
+        assertTrue(counts.getOrDefault(SLOW, 0) > 100, "recovered instance got " + counts.get(SLOW));
+    }
+}
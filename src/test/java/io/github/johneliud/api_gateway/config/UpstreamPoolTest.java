@@ -0,0 +1,61 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamPoolTest {
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("order.service.url", "http://order-service:8084")
+            .withProperty("media.service.url", "https://media.internal")
+            .withProperty("product.service.url", "http://product-1:8082, http://product-2:8082")
+            .withProperty("upstream.pool.default.max-connections", "50")
+            .withProperty("upstream.pool.default.max-idle-time", "20s")
+            .withProperty("upstream.pool.order.max-connections", "16");
+
+    // Boot's conversion service, as in the running application, so "20s" binds to a Duration
+    @BeforeEach
+    void setUp() {
+        environment.setConversionService(new ApplicationConversionService());
+    }
+
+    @Test
+    void serviceOverride_takesPrecedenceOverDefaults() {
+        UpstreamPool pool = UpstreamPool.forService(environment, "order");
+
+        assertEquals(List.of(InetSocketAddress.createUnresolved("order-service", 8084)), pool.addresses());
+        assertEquals(16, pool.maxConnections());
+        assertEquals(Duration.ofSeconds(20), pool.maxIdleTime());
+        assertEquals(Duration.ofSeconds(2), pool.pendingAcquireTimeout());
+    }
+
+    @Test
+    void urlWithoutPort_usesSchemeDefault() {
+        UpstreamPool pool = UpstreamPool.forService(environment, "media");
+
+        assertEquals(443, pool.addresses().getFirst().getPort());
+        assertEquals(50, pool.maxConnections());
+    }
+
+    @Test
+    void instanceList_getsOnePoolPerInstance() {
+        UpstreamPool pool = UpstreamPool.forService(environment, "product");
+
+        assertEquals(List.of(InetSocketAddress.createUnresolved("product-1", 8082),
+                InetSocketAddress.createUnresolved("product-2", 8082)), pool.addresses());
+        assertEquals(50, pool.maxConnections());
+    }
+
+    @Test
+    void defaults_haveNoAddress() {
+        assertTrue(UpstreamPool.defaults(environment).addresses().isEmpty());
+    }
+}
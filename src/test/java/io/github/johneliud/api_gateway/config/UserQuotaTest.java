@@ -0,0 +1,149 @@
+package io.github.johneliud.api_gateway.config;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserQuotaTest {
+
+    @Test
+    void capIsPerPrincipal() {
+        UserQuota quota = new UserQuota(2, 0, Duration.ZERO);
+
+        assertNotNull(quota.tryAcquire("alice"));
+        assertNotNull(quota.tryAcquire("alice"));
+        assertNull(quota.tryAcquire("alice"));
+        assertNotNull(quota.tryAcquire("bob"));
+        assertEquals(2, quota.inFlight("alice"));
+    }
+
+    @Test
+    void idlePrincipal_isRemovedOnLastRelease() {
+        UserQuota quota = new UserQuota(2, 0, Duration.ZERO);
+
+        UserQuota.Permit first = quota.tryAcquire("alice");
+        UserQuota.Permit second = quota.tryAcquire("alice");
+        first.release();
+        assertEquals(1, quota.principals());
+        second.release();
+
+        assertEquals(0, quota.principals());
+        assertNotNull(quota.tryAcquire("alice"));
+        assertEquals(1, quota.inFlight("alice"));
+    }
+
+    @Test
+    void waiter_getsTheNextReleasedPermit() {
+        UserQuota quota = new UserQuota(1, 1, Duration.ofSeconds(5));
+        UserQuota.Permit holder = quota.tryAcquire("alice");
+
+        Mono<UserQuota.Permit> waiting = quota.await("alice").cache();
+        waiting.subscribe();
+        assertNull(quota.tryAcquire("alice"));
+        holder.release();
+
+        UserQuota.Permit handedOff = waiting.block(Duration.ofSeconds(1));
+        assertNotNull(handedOff);
+        assertEquals(1, quota.inFlight("alice"));
+        handedOff.release();
+        assertEquals(0, quota.principals());
+    }
+
+    @Test
+    void fullQueueOrExpiredWait_isEmpty() {
+        UserQuota quota = new UserQuota(1, 1, Duration.ofMillis(50));
+        quota.tryAcquire("alice");
+
+        quota.await("alice").subscribe();
+        assertNull(quota.await("alice").block(Duration.ofSeconds(1)), "queue of one is already taken");
+
+        long start = System.nanoTime();
+        Mono<UserQuota.Permit> expired = Mono.delay(Duration.ofMillis(100)).then(quota.await("alice"));
+        assertNull(expired.block(Duration.ofSeconds(1)));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 140);
+        // The timed-out waiters left the queue and hold nothing
+        assertEquals(1, quota.inFlight("alice"));
+    }
+
+    @Test
+    void grantRacingTheDeadline_neverLosesThePermit() throws InterruptedException {
+        UserQuota quota = new UserQuota(1, 1, Duration.ofNanos(200_000));
+        AtomicInteger granted = new AtomicInteger();
+        for (int i = 0; i < 2_000; i++) {
+            UserQuota.Permit holder = quota.tryAcquire("alice");
+            assertNotNull(holder);
+            CountDownLatch settled = new CountDownLatch(1);
+            quota.await("alice")
+                    .doFinally(signal -> settled.countDown())
+                    .subscribe(permit -> {
+                        granted.incrementAndGet();
+                        permit.release();
+                    });
+            // Release around the moment the wait expires, so grant and deadline race
+            LockSupport.parkNanos(150_000 + (i % 100) * 1_000);
+            holder.release();
+            assertTrue(settled.await(1, TimeUnit.SECONDS));
+        }
+
+        assertTrue(granted.get() > 0, "no grant won the race");
+        assertEquals(0, quota.inFlight("alice"));
+        assertEquals(0, quota.principals());
+    }
+
+    @Test
+    void concurrentRequests_neverExceedTheCapAndLeaveNothingBehind() throws InterruptedException {
+        int cap = 4;
+        UserQuota quota = new UserQuota(cap, 64, Duration.ofSeconds(5));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger served = new AtomicInteger();
+        int threads = 16;
+        int perThread = 2_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<String> principals = List.of("alice", "bob", "carol");
+
+        for (int t = 0; t < threads; t++) {
+            String principal = principals.get(t % principals.size());
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    UserQuota.Permit permit = quota.tryAcquire(principal);
+                    if (permit == null) {
+                        permit = quota.await(principal).block();
+                    }
+                    if (permit == null) {
+                        continue;
+                    }
+                    if (principal.equals("alice")) {
+                        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        running.decrementAndGet();
+                    }
+                    served.incrementAndGet();
+                    permit.release();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertTrue(peak.get() <= cap, "peak " + peak.get());
+        assertEquals(threads * perThread, served.get());
+        assertEquals(0, quota.principals());
+    }
+
+    @Test
+    void rejectsNonPositiveCap() {
+        assertThrows(IllegalArgumentException.class, () -> new UserQuota(0, 1, Duration.ZERO));
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BodyLimitFilterTest {
+
+    private final AtomicInteger forwarded = new AtomicInteger();
+    private final AtomicLong forwardedBytes = new AtomicLong();
+
+    // Streams the body upstream as NettyRoutingFilter does, one buffer at a time
+    private final GatewayFilterChain upstream = exchange -> {
+        forwarded.incrementAndGet();
+        return exchange.getRequest().getBody()
+                .doOnNext(buffer -> {
+                    forwardedBytes.addAndGet(buffer.readableByteCount());
+                    DataBufferUtils.release(buffer);
+                })
+                .then();
+    };
+
+    private SimpleMeterRegistry meterRegistry;
+    private BodyLimitFilter filterFactory;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filterFactory = new BodyLimitFilter(meterRegistry);
+    }
+
+    private static DataBuffer chunk(int bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(new byte[bytes]);
+    }
+
+    private static MockServerWebExchange upload(Flux<DataBuffer> body) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/media/images").body(body));
+    }
+
+    private double rejected(String status) {
+        return meterRegistry.get("gateway.requests.rejected").tag("filter", "body-limit").tag("status", status)
+                .counter().count();
+    }
+
+    @Test
+    void contentLengthOverLimit_isRejectedBeforeTheChain() {
+        GatewayFilter filter = filterFactory.apply(new BodyLimitFilter.Config().setMaxBytes(1_000));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/media/images")
+                .contentLength(5_000_000)
+                .body(Flux.just(chunk(16))));
+
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(5));
+
+        assertEquals(0, forwarded.get());
+        assertEquals(HttpStatus.CONTENT_TOO_LARGE, exchange.getResponse().getStatusCode());
+        assertEquals("close", exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONNECTION));
+        assertTrue(exchange.getResponse().getBodyAsString().block().contains("\"code\":\"payload_too_large\""));
+        assertEquals(1, rejected("413"));
+    }
+
+    @Test
+    void streamedBodyOverLimit_isCutOffAtTheLimit() {
+        GatewayFilter filter = filterFactory.apply(new BodyLimitFilter.Config().setMaxBytes(1_000));
+        MockServerWebExchange exchange = upload(Flux.range(0, 10).map(i -> chunk(400)));
+
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(5));
+
+        assertEquals(800, forwardedBytes.get());
+        assertEquals(HttpStatus.CONTENT_TOO_LARGE, exchange.getResponse().getStatusCode());
+        assertEquals(1, rejected("413"));
+    }
+
+    @Test
+    void bodyWithinLimits_isForwardedWhole() {
+        GatewayFilter filter = filterFactory.apply(new BodyLimitFilter.Config()
+                .setMaxBytes(1_000_000)
+                .setMinBytesPerSecond(1_000)
+                .setRateGrace(Duration.ofMillis(200)));
+        MockServerWebExchange exchange = upload(Flux.range(0, 10).map(i -> chunk(4_096)));
+
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(5));
+
+        assertEquals(40_960, forwardedBytes.get());
+        assertNull(exchange.getResponse().getStatusCode());
+        assertEquals(0, rejected("408") + rejected("413"));
+    }
+
+    @Test
+    void manySlowUploaders_areAllCutOffSoonAfterTheGracePeriod() {
+        GatewayFilter filter = filterFactory.apply(new BodyLimitFilter.Config()
+                .setMaxBytes(1_000_000)
+                .setMinBytesPerSecond(1_000)
+                .setRateGrace(Duration.ofMillis(200)));
+        int uploaders = 500;
+
+        // 10 bytes every 50 ms is 200 bytes/s, a fifth of the minimum; left alone each would take 50 s
+        long start = System.nanoTime();
+        List<MockServerWebExchange> exchanges = Flux.range(0, uploaders)
+                .map(i -> upload(Flux.interval(Duration.ofMillis(50)).take(1_000).map(tick -> chunk(10))))
+                .flatMap(exchange -> filter.filter(exchange, upstream).thenReturn(exchange), uploaders)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        long millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(uploaders, exchanges.size());
+        assertTrue(exchanges.stream().allMatch(e -> e.getResponse().getStatusCode() == HttpStatus.REQUEST_TIMEOUT));
+        assertTrue(millis < 3_000, "slow uploads held for " + millis + "ms");
+        assertEquals(uploaders, rejected("408"));
+    }
+
+    @Test
+    void trickleAfterAFastStart_isCutOffWhenTheAverageDrops() {
+        GatewayFilter filter = filterFactory.apply(new BodyLimitFilter.Config()
+                .setMaxBytes(1_000_000)
+                .setMinBytesPerSecond(1_000)
+                .setRateGrace(Duration.ofMillis(100)));
+        // 500 bytes up front covers half a second at the minimum rate, then nothing more arrives for 5 s
+        MockServerWebExchange exchange = upload(Flux.concat(Flux.just(chunk(500)),
+                Flux.interval(Duration.ofSeconds(5)).map(tick -> chunk(10))));
+
+        long start = System.nanoTime();
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(5));
+        long millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(HttpStatus.REQUEST_TIMEOUT, exchange.getResponse().getStatusCode());
+        assertTrue(millis >= 450 && millis < 2_000, "cut off after " + millis + "ms");
+    }
+
+    @Test
+    void slowBackend_isNotChargedToTheClient() {
+        GatewayFilter filter = filterFactory.apply(new BodyLimitFilter.Config()
+                .setMaxBytes(1_000_000)
+                .setMinBytesPerSecond(1_000)
+                .setRateGrace(Duration.ofMillis(100)));
+        // The whole body is there at once, but the backend takes one 100 byte chunk every 150 ms, well under the minimum
+        MockServerWebExchange exchange = upload(Flux.range(0, 10).map(i -> chunk(100)));
+        GatewayFilterChain slowUpstream = e -> e.getRequest().getBody()
+                .concatMap(buffer -> Mono.delay(Duration.ofMillis(150)).doOnNext(tick -> {
+                    forwardedBytes.addAndGet(buffer.readableByteCount());
+                    DataBufferUtils.release(buffer);
+                }), 1)
+                .then();
+
+        filter.filter(exchange, slowUpstream).block(Duration.ofSeconds(5));
+
+        assertEquals(1_000, forwardedBytes.get());
+        assertNull(exchange.getResponse().getStatusCode());
+        assertEquals(0, rejected("408"));
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.CachedResponse;
+import io.github.johneliud.api_gateway.config.ResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionFilterTest {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private SimpleMeterRegistry meterRegistry;
+    private ResponseCache responseCache;
+    private GatewayFilter compression;
+    private GatewayFilter cache;
+    private MediaType upstreamType;
+    private String upstreamEncoding;
+    private String upstreamBody;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        responseCache = new ResponseCache(1024 * 1024, 256 * 1024, 64 * 1024, meterRegistry);
+        compression = new CompressionFilter(6, 4, meterRegistry).apply(new CompressionFilter.Config().setMinBytes(1024));
+        cache = new ResponseCacheFilter(responseCache).apply(new ResponseCacheFilter.Config().setTtl(Duration.ofMinutes(1)));
+        upstreamType = MediaType.APPLICATION_JSON;
+        upstreamEncoding = null;
+        upstreamBody = products(200);
+    }
+
+    private static String products(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"id\":\"p").append(i).append("\",\"name\":\"Desk lamp ").append(i)
+                    .append("\",\"price\":").append(10 + i % 40).append(".99,\"quantity\":").append(i % 7).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    // Streams the body in 1 KiB chunks with no Content-Length, like a chunked upstream response
+    private final GatewayFilterChain upstream = exchange -> {
+        upstreamCalls.incrementAndGet();
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        headers.setContentType(upstreamType);
+        headers.setETag("\"v1\"");
+        if (upstreamEncoding != null) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, upstreamEncoding);
+        }
+        byte[] bytes = upstreamBody.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += 1024) {
+            chunks.add(exchange.getResponse().bufferFactory()
+                    .wrap(Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + 1024))));
+        }
+        return exchange.getResponse().writeWith(Flux.fromIterable(chunks));
+    };
+
+    private MockServerWebExchange get(String... headers) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/products");
+        for (int i = 0; i < headers.length; i += 2) {
+            request.header(headers[i], headers[i + 1]);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        compression.filter(exchange, compressed -> cache.filter(compressed, upstream)).block();
+        return exchange;
+    }
+
+    private static byte[] body(MockServerWebExchange exchange) {
+        return DataBufferUtils.join(exchange.getResponse().getBody())
+                .map(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .defaultIfEmpty(new byte[0])
+                .block();
+    }
+
+    private static String gunzip(byte[] bytes) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void jsonBody_isGzippedForAcceptingClient() {
+        MockServerWebExchange exchange = get(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        byte[] encoded = body(exchange);
+
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+        assertEquals("W/\"v1\"", headers.getETag());
+        assertEquals(upstreamBody, gunzip(encoded));
+        assertTrue(encoded.length < upstreamBody.length() / 4, "gzip body is " + encoded.length + " bytes");
+        assertEquals(upstreamBody.length(), meterRegistry.get("gateway.compression.bytes")
+                .tag("stage", "identity").counter().count());
+        assertEquals(encoded.length, meterRegistry.get("gateway.compression.bytes")
+                .tag("stage", "encoded").counter().count());
+    }
+
+    @Test
+    void cacheHit_reusesCompressedBody() {
+        byte[] first = body(get(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        MockServerWebExchange second = get(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        byte[] hit = body(second);
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals(hit.length, second.getResponse().getHeaders().getContentLength());
+        assertEquals(upstreamBody, gunzip(first));
+        assertEquals(upstreamBody, gunzip(hit));
+
+        CachedResponse cached = responseCache.get(ResponseCache.key(MockServerHttpRequest.get("/api/products")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").build()));
+        assertEquals(upstreamBody.length(), cached.size());
+        assertEquals(1, cached.encodings().size());
+        ByteBuffer stored = cached.encoded(CompressionFilter.GZIP, identity -> fail("compressed again"));
+        assertEquals(hit.length, stored.remaining());
+    }
+
+    @Test
+    void clientWithoutGzip_getsIdentityBody() {
+        MockServerWebExchange exchange = get(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity");
+
+        assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(exchange.getResponse().getHeaders().getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+        assertEquals(upstreamBody, new String(body(exchange), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void smallBody_isSentAsIs() {
+        upstreamBody = products(1);
+        GatewayFilterChain sized = exchange -> {
+            exchange.getResponse().getHeaders().setContentLength(upstreamBody.length());
+            return upstream.filter(exchange);
+        };
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        compression.filter(exchange, sized).block();
+
+        assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(upstreamBody, new String(body(exchange), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void compressedMediaAndEncodedBodies_areSentAsIs() {
+        upstreamType = MediaType.IMAGE_PNG;
+        MockServerWebExchange image = get(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        assertNull(image.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(image.getResponse().getHeaders().getVary().isEmpty());
+
+        upstreamType = MediaType.APPLICATION_JSON;
+        upstreamEncoding = "br";
+        MockServerWebExchange encoded = get(HttpHeaders.ACCEPT_ENCODING, "gzip, br");
+        assertEquals("br", encoded.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(upstreamBody, new String(body(encoded), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void acceptEncoding_honoursQualityValues() {
+        assertTrue(CompressionFilter.acceptsGzip(List.of("gzip")));
+        assertTrue(CompressionFilter.acceptsGzip(List.of("br;q=1.0, gzip;q=0.8")));
+        assertTrue(CompressionFilter.acceptsGzip(List.of("br", "*;q=0.1")));
+        assertFalse(CompressionFilter.acceptsGzip(List.of("identity")));
+        assertFalse(CompressionFilter.acceptsGzip(List.of("*, gzip;q=0")));
+        assertFalse(CompressionFilter.acceptsGzip(null));
+    }
+
+    @Test
+    void encoder_returnsDeflaterToPool() {
+        DeflaterPool pool = new DeflaterPool(6, 2);
+        byte[] encoded = GzipEncoder.encode(ByteBuffer.wrap(upstreamBody.getBytes(StandardCharsets.UTF_8)), pool);
+
+        assertEquals(upstreamBody, gunzip(encoded));
+        assertEquals(1, pool.idleCount());
+
+        GzipEncoder abandoned = new GzipEncoder(pool);
+        abandoned.close();
+        abandoned.close();
+        assertEquals(1, pool.idleCount());
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.DownstreamGuard;
+import io.github.johneliud.api_gateway.config.DownstreamGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownstreamProtectionFilterTest {
+
+    private final AtomicInteger forwarded = new AtomicInteger();
+
+    private SimpleMeterRegistry meterRegistry;
+    private DownstreamGuards guards;
+    private GatewayFilter filter;
+    private HttpStatus upstreamStatus;
+
+    private final GatewayFilterChain upstream = exchange -> {
+        forwarded.incrementAndGet();
+        exchange.getResponse().setStatusCode(upstreamStatus);
+        return exchange.getResponse().setComplete();
+    };
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        guards = new DownstreamGuards(new DownstreamGuard.Settings(
+                10, 3, 0.5, Duration.ofMinutes(1), 1, 10, 1, 20, 1000.0, 0.9), meterRegistry);
+        filter = new DownstreamProtectionFilter(guards).apply(new DownstreamProtectionFilter.Config().setService("order"));
+        upstreamStatus = HttpStatus.OK;
+    }
+
+    private MockServerWebExchange get(GatewayFilterChain chain) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders"));
+        filter.filter(exchange, chain).onErrorComplete().block();
+        return exchange;
+    }
+
+    @Test
+    void upstream5xx_opensCircuitAndFailsFast() {
+        upstreamStatus = HttpStatus.BAD_GATEWAY;
+        for (int i = 0; i < 3; i++) {
+            get(upstream);
+        }
+        MockServerWebExchange rejected = get(upstream);
+
+        assertEquals(3, forwarded.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(rejected.getResponse().getBodyAsString().block()
+                .startsWith("{\"error\":\"Service temporarily unavailable\",\"code\":\"circuit_open\",\"status\":503,"));
+        assertEquals(1, meterRegistry.get("gateway.downstream.rejected").tag("reason", "circuit-open").counter().count());
+    }
+
+    @Test
+    void uploadsCutOffByBodyLimit_doNotOpenCircuit() {
+        GatewayFilterChain cutOff = exchange -> {
+            forwarded.incrementAndGet();
+            return Mono.error(new BodyLimitFilter.BodyLimitExceededException("Request body over 1000 bytes"));
+        };
+        for (int i = 0; i < 5; i++) {
+            get(cutOff);
+        }
+        assertEquals(5, forwarded.get());
+        assertEquals(DownstreamGuard.Circuit.CLOSED, guards.get("order").getCircuit());
+    }
+
+    @Test
+    void clientErrors_doNotOpenCircuit() {
+        upstreamStatus = HttpStatus.NOT_FOUND;
+        for (int i = 0; i < 5; i++) {
+            get(upstream);
+        }
+        assertEquals(5, forwarded.get());
+        assertEquals(DownstreamGuard.Circuit.CLOSED, guards.get("order").getCircuit());
+    }
+
+    @Test
+    void upstreamErrors_countAsFailures() {
+        GatewayFilterChain failing = exchange -> {
+            forwarded.incrementAndGet();
+            return Mono.error(new IllegalStateException("connection refused"));
+        };
+        for (int i = 0; i < 3; i++) {
+            get(failing);
+        }
+        assertEquals(DownstreamGuard.Circuit.OPEN, guards.get("order").getCircuit());
+        assertEquals(0, guards.get("order").getInFlight());
+    }
+
+    @Test
+    void completedRequests_releaseTheirSlot() {
+        get(upstream);
+        get(upstream);
+        assertEquals(0, guards.get("order").getInFlight());
+        assertEquals(10, meterRegistry.get("gateway.downstream.concurrency.limit").tag("service", "order").gauge().value());
+    }
+}
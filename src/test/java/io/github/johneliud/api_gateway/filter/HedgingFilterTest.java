@@ -0,0 +1,163 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.UpstreamBalancers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs hedged GETs against local stub backends; one is slow or failing, the other answers quickly.
+ */
+class HedgingFilterTest {
+
+    private final List<DisposableServer> backends = new ArrayList<>();
+    private final AtomicInteger forwarded = new AtomicInteger();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backends.forEach(DisposableServer::disposeNow);
+    }
+
+    private String backend(Duration delay, HttpStatus status, String body) {
+        DisposableServer server = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> Mono.delay(delay)
+                        .then(response.status(status.value())
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just(body))
+                                .then()))
+                .bindNow();
+        backends.add(server);
+        return "http://localhost:" + server.port();
+    }
+
+    private GatewayFilter filter(String productInstances, HedgingFilter.Config config) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("user.service.url", "http://localhost:1")
+                .withProperty("product.service.url", productInstances)
+                .withProperty("media.service.url", "http://localhost:1")
+                .withProperty("order.service.url", "http://localhost:1");
+        UpstreamBalancers balancers = new UpstreamBalancers(environment, Duration.ofSeconds(10), 3,
+                Duration.ofMinutes(1), 10, 2, "", Duration.ofSeconds(10), Duration.ofSeconds(2), meterRegistry);
+        return new HedgingFilter(HttpClient.create(), Duration.ofSeconds(5), List::of, balancers, meterRegistry)
+                .apply(config);
+    }
+
+    private MockServerWebExchange send(GatewayFilter filter, MockServerHttpRequest request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id("product-by-id")
+                .uri("lb://product")
+                .predicate(e -> true)
+                .build());
+        filter.filter(exchange, chain).block(Duration.ofSeconds(10));
+        return exchange;
+    }
+
+    private MockServerWebExchange get(GatewayFilter filter) {
+        return send(filter, MockServerHttpRequest.get("/api/products/p1").build());
+    }
+
+    private double count(String name, String tag, String value) {
+        Counter counter = meterRegistry.find(name).tag(tag, value).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    @Test
+    void slowInstance_isHedgedToAnother() {
+        String slow = backend(Duration.ofMillis(800), HttpStatus.OK, "{\"from\":\"slow\"}");
+        String fast = backend(Duration.ofMillis(5), HttpStatus.OK, "{\"from\":\"fast\"}");
+        GatewayFilter filter = filter(slow + "," + fast, new HedgingFilter.Config()
+                .setMaxDelay(Duration.ofMillis(50))
+                .setBudgetRatio(1.0));
+
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            MockServerWebExchange exchange = get(filter);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+            assertEquals("{\"from\":\"fast\"}", exchange.getResponse().getBodyAsString().block());
+            assertTrue(millis < 500, "request took " + millis + "ms");
+        }
+        assertTrue(count("gateway.hedge.sent", "reason", "hedge") >= 1);
+        assertTrue(count("gateway.hedge.wins", "winner", "second") >= 1);
+        assertEquals(0, forwarded.get());
+    }
+
+    @Test
+    void serverError_isRetriedOnAnotherInstance() {
+        String failing = backend(Duration.ZERO, HttpStatus.INTERNAL_SERVER_ERROR, "{}");
+        String healthy = backend(Duration.ZERO, HttpStatus.OK, "{\"id\":\"p1\"}");
+        GatewayFilter filter = filter(failing + "," + healthy, new HedgingFilter.Config().setBudgetRatio(1.0));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(HttpStatus.OK, get(filter).getResponse().getStatusCode());
+        }
+        assertTrue(count("gateway.hedge.sent", "reason", "retry") >= 1);
+    }
+
+    @Test
+    void exhaustedBudget_returnsUpstreamFailure() {
+        String failing = backend(Duration.ZERO, HttpStatus.INTERNAL_SERVER_ERROR, "{}");
+        String healthy = backend(Duration.ZERO, HttpStatus.OK, "{\"id\":\"p1\"}");
+        GatewayFilter filter = filter(failing + "," + healthy, new HedgingFilter.Config()
+                .setBudgetRatio(0)
+                .setBudgetBurst(0));
+
+        int failures = 0;
+        for (int i = 0; i < 10; i++) {
+            if (get(filter).getResponse().getStatusCode() == HttpStatus.INTERNAL_SERVER_ERROR) {
+                failures++;
+            }
+        }
+
+        assertTrue(failures >= 1);
+        assertEquals(failures, count("gateway.hedge.budget.exhausted", "reason", "retry"));
+        assertEquals(0, count("gateway.hedge.sent", "reason", "retry"));
+    }
+
+    @Test
+    void nonGetRequest_goesThroughChain() {
+        String healthy = backend(Duration.ZERO, HttpStatus.OK, "{}");
+        String other = backend(Duration.ZERO, HttpStatus.OK, "{}");
+        GatewayFilter filter = filter(healthy + "," + other, new HedgingFilter.Config());
+
+        send(filter, MockServerHttpRequest.post("/api/products/p1").build());
+
+        assertEquals(1, forwarded.get());
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.UpstreamBalancers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the filter against local stub backends with different response times; the chain stands in for
+ * NettyRoutingFilter by calling the URL the filter chose.
+ */
+class LoadBalancerFilterTest {
+
+    private final List<DisposableServer> backends = new ArrayList<>();
+    private final Map<Integer, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final HttpClient client = HttpClient.create();
+
+    private final GatewayFilterChain upstream = exchange -> {
+        URI url = exchange.getRequiredAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        return client.get()
+                .uri(url.toString())
+                .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                .flatMap(status -> {
+                    exchange.getResponse().setStatusCode(HttpStatusCode.valueOf(status));
+                    return exchange.getResponse().setComplete();
+                });
+    };
+
+    @AfterEach
+    void tearDown() {
+        backends.forEach(DisposableServer::disposeNow);
+    }
+
+    private String backend(Duration delay, HttpStatus status) {
+        DisposableServer server = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> Mono.delay(delay)
+                        .then(response.status(status.value()).sendString(Mono.just("{}")).then()))
+                .bindNow();
+        backends.add(server);
+        hits.put(server.port(), new AtomicInteger());
+        return "http://localhost:" + server.port();
+    }
+
+    private LoadBalancerFilter filter(String productInstances) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("user.service.url", "http://localhost:1")
+                .withProperty("product.service.url", productInstances)
+                .withProperty("media.service.url", "http://localhost:1")
+                .withProperty("order.service.url", "http://localhost:1");
+        UpstreamBalancers balancers = new UpstreamBalancers(environment, Duration.ofSeconds(10), 3,
+                Duration.ofMinutes(1), 10, 2, "", Duration.ofSeconds(10), Duration.ofSeconds(2),
+                new SimpleMeterRegistry());
+        return new LoadBalancerFilter(balancers);
+    }
+
+    private Mono<Void> send(LoadBalancerFilter filter) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR,
+                URI.create("lb://product/api/products?page=2"));
+        return filter.filter(exchange, chosen -> {
+            URI url = chosen.getRequiredAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+            hits.get(url.getPort()).incrementAndGet();
+            assertEquals("/api/products", url.getPath());
+            assertEquals("page=2", url.getQuery());
+            return upstream.filter(chosen);
+        });
+    }
+
+    private void sendAll(LoadBalancerFilter filter, int requests, int concurrency) {
+        Flux.range(0, requests)
+                .flatMap(i -> send(filter).onErrorComplete(), concurrency)
+                .blockLast(Duration.ofSeconds(60));
+    }
+
+    private int port(String url) {
+        return URI.create(url).getPort();
+    }
+
+    @Test
+    void slowBackend_receivesLessTraffic() {
+        String fast = backend(Duration.ofMillis(2), HttpStatus.OK);
+        String alsoFast = backend(Duration.ofMillis(2), HttpStatus.OK);
+        String slow = backend(Duration.ofMillis(60), HttpStatus.OK);
+        LoadBalancerFilter filter = filter(String.join(",", fast, alsoFast, slow));
+
+        sendAll(filter, 300, 8);
+
+        Map<Integer, Integer> counts = hits.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get()));
+        assertEquals(300, counts.values().stream().mapToInt(Integer::intValue).sum());
+        assertTrue(counts.get(port(slow)) < 45, "slow backend got " + counts);
+    }
+
+    @Test
+    void failingBackend_isEjected() {
+        String healthy = backend(Duration.ZERO, HttpStatus.OK);
+        String failing = backend(Duration.ZERO, HttpStatus.INTERNAL_SERVER_ERROR);
+        LoadBalancerFilter filter = filter(healthy + "," + failing);
+
+        // Concurrent requests spread by outstanding count, so the failing backend is tried early
+        sendAll(filter, 50, 4);
+        int failingHits = hits.get(port(failing)).get();
+        sendAll(filter, 50, 1);
+
+        assertTrue(failingHits >= 3);
+        assertEquals(failingHits, hits.get(port(failing)).get());
+    }
+
+    @Test
+    void nonBalancedUrl_isLeftAlone() {
+        LoadBalancerFilter filter = filter("http://localhost:1");
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products"));
+        URI direct = URI.create("http://product-canary:8082/api/products");
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, direct);
+
+        filter.filter(exchange, chosen -> Mono.empty()).block();
+
+        assertEquals(direct, exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR));
+    }
+}
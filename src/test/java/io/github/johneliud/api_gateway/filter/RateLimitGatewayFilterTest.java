@@ -0,0 +1,214 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.LocalRateLimitBackend;
+import io.github.johneliud.api_gateway.config.RateLimitService;
+import io.github.johneliud.api_gateway.config.ResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitGatewayFilterTest {
+
+    private final AtomicInteger forwarded = new AtomicInteger();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitGatewayFilter filterFactory;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitService rateLimitService = new RateLimitService(
+                new LocalRateLimitBackend(1_000, new SimpleMeterRegistry()), 2, 2, 15);
+        meterRegistry = new SimpleMeterRegistry();
+        filterFactory = new RateLimitGatewayFilter(rateLimitService, "partner-1", meterRegistry);
+    }
+
+    private static MockServerWebExchange exchange(String routeId, String ip, String userId) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/orders")
+                .remoteAddress(new InetSocketAddress(ip, 40000));
+        if (userId != null) {
+            request.header("X-User-Id", userId);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id(routeId)
+                .uri("http://localhost")
+                .predicate(e -> true)
+                .build());
+        return exchange;
+    }
+
+    @Test
+    void defaultConfig_appliesLoginLimitPerIp() {
+        GatewayFilter filter = filterFactory.apply(new RateLimitGatewayFilter.Config());
+        filter.filter(exchange("user-login", "10.0.0.1", null), chain).block();
+        filter.filter(exchange("user-login", "10.0.0.1", null), chain).block();
+
+        MockServerWebExchange rejected = exchange("user-login", "10.0.0.1", null);
+        filter.filter(rejected, chain).block();
+
+        assertEquals(2, forwarded.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("0", rejected.getResponse().getHeaders().getFirst(RateLimitGatewayFilter.REMAINING_HEADER));
+        assertNotNull(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        String requestId = rejected.getResponse().getHeaders().getFirst(Rejection.REQUEST_ID_HEADER);
+        assertEquals("{\"error\":\"Rate limit exceeded\",\"code\":\"rate_limited\",\"status\":429,\"request_id\":\""
+                + requestId + "\"}", rejected.getResponse().getBodyAsString().block());
+        assertEquals(1, meterRegistry.get("gateway.requests.rejected").tag("status", "429").counter().count());
+        assertEquals(3, meterRegistry.get("gateway.filter.time").tag("filter", "rate-limit").timer().count());
+    }
+
+    @Test
+    void allowedRequest_reportsRemainingTokens() {
+        GatewayFilter filter = filterFactory.apply(new RateLimitGatewayFilter.Config()
+                .addLimit(10, 10, Duration.ofSeconds(1)));
+        MockServerWebExchange exchange = exchange("product-list", "10.0.0.2", null);
+        filter.filter(exchange, chain).block();
+
+        assertEquals("9", exchange.getResponse().getHeaders().getFirst(RateLimitGatewayFilter.REMAINING_HEADER));
+    }
+
+    @Test
+    void userKeyResolver_limitsPerPrincipalNotPerIp() {
+        GatewayFilter filter = filterFactory.apply(new RateLimitGatewayFilter.Config()
+                .setKeyResolver(RateLimitGatewayFilter.KeyResolver.USER)
+                .addLimit(1, 1, Duration.ofMinutes(1)));
+        filter.filter(exchange("orders", "10.0.0.3", "alice"), chain).block();
+        filter.filter(exchange("orders", "10.0.0.4", "bob"), chain).block();
+
+        MockServerWebExchange rejected = exchange("orders", "10.0.0.5", "alice");
+        filter.filter(rejected, chain).block();
+
+        assertEquals(2, forwarded.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+    }
+
+    @Test
+    void apiKeyResolver_unknownKeysShareTheCallersIpBucket() {
+        GatewayFilter filter = filterFactory.apply(new RateLimitGatewayFilter.Config()
+                .setKeyResolver(RateLimitGatewayFilter.KeyResolver.API_KEY)
+                .addLimit(1, 1, Duration.ofMinutes(1)));
+        filter.filter(withApiKey("10.0.0.8", "random-1"), chain).block();
+        MockServerWebExchange rotated = withApiKey("10.0.0.8", "random-2");
+        filter.filter(rotated, chain).block();
+        filter.filter(withApiKey("10.0.0.8", "partner-1"), chain).block();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rotated.getResponse().getStatusCode());
+        assertEquals(2, forwarded.get());
+    }
+
+    private static MockServerWebExchange withApiKey(String ip, String apiKey) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/partners")
+                .remoteAddress(new InetSocketAddress(ip, 40000))
+                .header(RateLimitGatewayFilter.KeyResolver.API_KEY_HEADER, apiKey));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id("partners")
+                .uri("http://localhost")
+                .predicate(e -> true)
+                .build());
+        return exchange;
+    }
+
+    @Test
+    void multipleBandwidths_tightestLimitWins() {
+        GatewayFilter filter = filterFactory.apply(new RateLimitGatewayFilter.Config()
+                .addLimit(100, 100, Duration.ofSeconds(1))
+                .addLimit(3, 3, Duration.ofHours(1)));
+        for (int i = 0; i < 5; i++) {
+            filter.filter(exchange("product-list", "10.0.0.6", null), chain).block();
+        }
+        assertEquals(3, forwarded.get());
+    }
+
+    @Test
+    void sameKeyOnDifferentRoutes_independentBuckets() {
+        RateLimitGatewayFilter.Config config = new RateLimitGatewayFilter.Config()
+                .addLimit(1, 1, Duration.ofMinutes(1));
+        GatewayFilter filter = filterFactory.apply(config);
+        filter.filter(exchange("product-list", "10.0.0.7", null), chain).block();
+        filter.filter(exchange("orders", "10.0.0.7", null), chain).block();
+        assertEquals(2, forwarded.get());
+    }
+
+    @Test
+    void bandwidthsShortcut_parsesEachLimit() {
+        RateLimitGatewayFilter.Config config = new RateLimitGatewayFilter.Config()
+                .setBandwidths("40:20/1s; 5000:5000/1h");
+        assertEquals(List.of(
+                new RateLimitGatewayFilter.Limit(40, 20, Duration.ofSeconds(1)),
+                new RateLimitGatewayFilter.Limit(5000, 5000, Duration.ofHours(1))), config.getLimits());
+        assertThrows(IllegalArgumentException.class, () -> config.setBandwidths("40/1s"));
+    }
+
+    // Sorts route filters the way the gateway does: unordered ones sit at their declaration order
+    private static GatewayFilterChain routeChain(List<GatewayFilter> declared, GatewayFilterChain upstream) {
+        List<GatewayFilter> sorted = new ArrayList<>();
+        for (GatewayFilter filter : declared) {
+            sorted.add(filter instanceof Ordered ? filter : new OrderedGatewayFilter(filter, sorted.size() + 1));
+        }
+        AnnotationAwareOrderComparator.sort(sorted);
+        GatewayFilterChain chain = upstream;
+        for (int i = sorted.size() - 1; i >= 0; i--) {
+            GatewayFilter filter = sorted.get(i);
+            GatewayFilterChain next = chain;
+            chain = exchange -> filter.filter(exchange, next);
+        }
+        return chain;
+    }
+
+    @Test
+    void orderedLimiter_countsCacheHits() {
+        GatewayFilterChain upstream = exchange -> {
+            forwarded.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                    .wrap("[{\"id\":\"p1\"}]".getBytes(StandardCharsets.UTF_8))));
+        };
+        ResponseCacheFilter cacheFilter = new ResponseCacheFilter(
+                new ResponseCache(64 * 1024, 16 * 1024, 1024, new SimpleMeterRegistry()));
+        // product-list: the cache filter is ordered, so only an ordered limiter can run ahead of it
+        GatewayFilterChain productList = routeChain(List.of(
+                filterFactory.apply(new RateLimitGatewayFilter.Config()
+                        .addLimit(2, 2, Duration.ofMinutes(1))
+                        .setOrder(RateLimitGatewayFilter.BEFORE_RESPONSE_FILTERS)),
+                cacheFilter.apply(new ResponseCacheFilter.Config().setTtl(Duration.ofMinutes(1)))), upstream);
+
+        MockServerWebExchange miss = exchange("product-list", "10.0.0.8", null);
+        productList.filter(miss).block();
+        MockServerWebExchange hit = exchange("product-list", "10.0.0.8", null);
+        productList.filter(hit).block();
+        MockServerWebExchange limited = exchange("product-list", "10.0.0.8", null);
+        productList.filter(limited).block();
+
+        assertEquals(1, forwarded.get());
+        assertEquals("HIT", hit.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals("0", hit.getResponse().getHeaders().getFirst(RateLimitGatewayFilter.REMAINING_HEADER));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getResponse().getStatusCode());
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.johneliud.api_gateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RejectionTest {
+
+    @Test
+    void writesTheSharedSchemaWithTheSuppliedRequestId() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders")
+                .header(Rejection.REQUEST_ID_HEADER, "req-42.a_b:c"));
+
+        Rejection.MISSING_TOKEN.writeTo(exchange).block();
+
+        String body = exchange.getResponse().getBodyAsString().block();
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals("{\"error\":\"Missing or invalid Authorization header\",\"code\":\"unauthorized\","
+                + "\"status\":401,\"request_id\":\"req-42.a_b:c\"}", body);
+        assertEquals(MediaType.APPLICATION_JSON, headers.getContentType());
+        assertEquals(body.getBytes(StandardCharsets.UTF_8).length, headers.getContentLength());
+        assertEquals("req-42.a_b:c", headers.getFirst(Rejection.REQUEST_ID_HEADER));
+    }
+
+    @Test
+    void unsafeRequestId_isReplacedByTheServerId() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders")
+                .header(Rejection.REQUEST_ID_HEADER, "\",\"admin\":true,\"x\":\""));
+
+        Rejection.RATE_LIMITED.writeTo(exchange).block();
+
+        String requestId = exchange.getRequest().getId();
+        assertEquals(requestId, exchange.getResponse().getHeaders().getFirst(Rejection.REQUEST_ID_HEADER));
+        assertTrue(exchange.getResponse().getBodyAsString().block().endsWith("\"request_id\":\"" + requestId + "\"}"));
+    }
+
+    @Test
+    void overlongRequestId_isReplacedByTheServerId() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders")
+                .header(Rejection.REQUEST_ID_HEADER, "a".repeat(65)));
+
+        assertEquals(exchange.getRequest().getId(), Rejection.requestId(exchange.getRequest()));
+    }
+}
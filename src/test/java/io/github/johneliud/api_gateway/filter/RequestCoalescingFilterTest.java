@@ -0,0 +1,145 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescingFilterTest {
+
+    private static final String BODY = "{\"id\":\"p1\"}";
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private SimpleMeterRegistry meterRegistry;
+    private GatewayFilter filter;
+    private Sinks.Empty<Void> gate;
+    private RuntimeException upstreamError;
+    private boolean setCookie;
+
+    // Holds every upstream call until the gate opens, so concurrent requests overlap
+    private final GatewayFilterChain upstream = exchange -> {
+        upstreamCalls.incrementAndGet();
+        return gate.asMono().then(Mono.defer(() -> {
+            if (upstreamError != null) {
+                return Mono.error(upstreamError);
+            }
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().set("X-Upstream", "product-service");
+            if (setCookie) {
+                exchange.getResponse().getHeaders().set(HttpHeaders.SET_COOKIE, "session=abc");
+            }
+            return exchange.getResponse().writeWith(Mono.just(
+                    exchange.getResponse().bufferFactory().wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+        }));
+    };
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RequestCoalescingFilter(meterRegistry).apply(new RequestCoalescingFilter.Config());
+        gate = Sinks.empty();
+    }
+
+    private static MockServerWebExchange exchange(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    private List<Mono<Void>> start(List<MockServerWebExchange> exchanges) {
+        List<Mono<Void>> results = new ArrayList<>();
+        for (MockServerWebExchange exchange : exchanges) {
+            results.add(filter.filter(exchange, upstream).cache());
+        }
+        results.forEach(Mono::subscribe);
+        return results;
+    }
+
+    @Test
+    void concurrentIdenticalRequests_shareOneUpstreamCall() {
+        List<MockServerWebExchange> exchanges = List.of(
+                exchange("/api/products/p1"), exchange("/api/products/p1"), exchange("/api/products/p1"));
+        List<Mono<Void>> results = start(exchanges);
+        gate.tryEmitEmpty();
+        results.forEach(r -> r.block(Duration.ofSeconds(5)));
+
+        assertEquals(1, upstreamCalls.get());
+        for (MockServerWebExchange exchange : exchanges) {
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+            assertEquals(BODY, exchange.getResponse().getBodyAsString().block());
+            assertEquals("product-service", exchange.getResponse().getHeaders().getFirst("X-Upstream"));
+        }
+        assertEquals(2, meterRegistry.get("gateway.coalescing.requests").counter().count());
+    }
+
+    @Test
+    void differentPaths_notCoalesced() {
+        List<Mono<Void>> results = start(List.of(exchange("/api/products/p1"), exchange("/api/products/p2")));
+        gate.tryEmitEmpty();
+        results.forEach(r -> r.block(Duration.ofSeconds(5)));
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void upstreamError_propagatedToAllWaiters() {
+        upstreamError = new IllegalStateException("connection refused");
+        List<Mono<Void>> results = start(List.of(exchange("/api/products/p1"), exchange("/api/products/p1")));
+        gate.tryEmitEmpty();
+
+        for (Mono<Void> result : results) {
+            assertThrows(IllegalStateException.class, () -> result.block(Duration.ofSeconds(5)));
+        }
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void leaderCancelled_waiterTakesOver() {
+        MockServerWebExchange leader = exchange("/api/products/p1");
+        MockServerWebExchange waiter = exchange("/api/products/p1");
+        Disposable leaderSubscription = filter.filter(leader, upstream).subscribe();
+        Mono<Void> waiterResult = filter.filter(waiter, upstream).cache();
+        waiterResult.subscribe();
+
+        leaderSubscription.dispose();
+        gate.tryEmitEmpty();
+        waiterResult.block(Duration.ofSeconds(5));
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(BODY, waiter.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void setCookieResponse_waitersCallUpstreamThemselves() {
+        setCookie = true;
+        List<MockServerWebExchange> exchanges = List.of(exchange("/api/products/p1"), exchange("/api/products/p1"));
+        List<Mono<Void>> results = start(exchanges);
+        gate.tryEmitEmpty();
+        results.forEach(r -> r.block(Duration.ofSeconds(5)));
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(1, meterRegistry.get("gateway.coalescing.bypassed").counter().count());
+    }
+
+    @Test
+    void completedFlight_nextRequestGoesUpstream() {
+        gate.tryEmitEmpty();
+        filter.filter(exchange("/api/products/p1"), upstream).block(Duration.ofSeconds(5));
+        filter.filter(exchange("/api/products/p1"), upstream).block(Duration.ofSeconds(5));
+        assertEquals(2, upstreamCalls.get());
+    }
+}
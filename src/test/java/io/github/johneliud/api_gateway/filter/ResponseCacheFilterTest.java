@@ -0,0 +1,168 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.github.johneliud.api_gateway.config.ResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheFilterTest {
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private SimpleMeterRegistry meterRegistry;
+    private ResponseCache responseCache;
+    private GatewayFilter filter;
+    private String upstreamCacheControl;
+    private String upstreamBody;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        responseCache = new ResponseCache(64 * 1024, 16 * 1024, 1024, meterRegistry);
+        filter = new ResponseCacheFilter(responseCache).apply(new ResponseCacheFilter.Config().setTtl(Duration.ofMinutes(1)));
+        upstreamCacheControl = null;
+        upstreamBody = "{\"id\":\"p1\",\"name\":\"Lamp\"}";
+    }
+
+    // Simulates the upstream: sets headers and streams the body in two chunks
+    private final GatewayFilterChain upstream = exchange -> {
+        upstreamCalls.incrementAndGet();
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setETag("\"v1\"");
+        if (upstreamCacheControl != null) {
+            headers.setCacheControl(upstreamCacheControl);
+        }
+        byte[] bytes = upstreamBody.getBytes(StandardCharsets.UTF_8);
+        int half = bytes.length / 2;
+        return exchange.getResponse().writeWith(Flux.just(
+                exchange.getResponse().bufferFactory().wrap(Arrays.copyOfRange(bytes, 0, half)),
+                exchange.getResponse().bufferFactory().wrap(Arrays.copyOfRange(bytes, half, bytes.length))));
+    };
+
+    private MockServerWebExchange get(String path, String... headers) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path);
+        for (int i = 0; i < headers.length; i += 2) {
+            request.header(headers[i], headers[i + 1]);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, upstream).block();
+        return exchange;
+    }
+
+    @Test
+    void repeatedGet_servedFromCache() {
+        MockServerWebExchange first = get("/api/products/p1");
+        MockServerWebExchange second = get("/api/products/p1");
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals(upstreamBody, second.getResponse().getBodyAsString().block());
+        assertEquals("\"v1\"", second.getResponse().getHeaders().getETag());
+        assertEquals(upstreamBody.length(), meterRegistry.get("gateway.response.cache.bytes.saved").counter().count());
+    }
+
+    @Test
+    void matchingIfNoneMatch_answers304AtEdge() {
+        get("/api/products/p1");
+        MockServerWebExchange conditional = get("/api/products/p1", HttpHeaders.IF_NONE_MATCH, "\"v1\"");
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get("gateway.response.cache.not.modified").counter().count());
+    }
+
+    @Test
+    void upstreamNoStore_notCached() {
+        upstreamCacheControl = "no-store";
+        get("/api/products/p1");
+        get("/api/products/p1");
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void upstreamMaxAgeZero_notCached() {
+        upstreamCacheControl = "public, max-age=0";
+        get("/api/products/p1");
+        get("/api/products/p1");
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void differentQuery_separateEntries() {
+        get("/api/products?page=1");
+        get("/api/products?page=2");
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void authorizedRequest_bypassesCache() {
+        get("/api/products/p1");
+        get("/api/products/p1", HttpHeaders.AUTHORIZATION, "Bearer token");
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void bodyLargerThanEntryLimit_notCached() {
+        upstreamBody = "x".repeat(20 * 1024);
+        get("/api/media/m1");
+        get("/api/media/m1");
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void rangeRequest_bypassesCache() {
+        get("/api/media/m1");
+        MockServerWebExchange partial = get("/api/media/m1", HttpHeaders.RANGE, "bytes=0-9");
+        assertEquals(2, upstreamCalls.get());
+        assertNull(partial.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER));
+        assertEquals(upstreamBody, partial.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void routeEntryLimit_streamsLargerBodiesUncached() {
+        filter = new ResponseCacheFilter(responseCache).apply(new ResponseCacheFilter.Config()
+                .setTtl(Duration.ofMinutes(1))
+                .setMaxEntryBytes(2 * 1024));
+        upstreamBody = "z".repeat(4 * 1024);
+        get("/api/media/m3");
+        MockServerWebExchange second = get("/api/media/m3");
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(upstreamBody, second.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void offHeapBody_servedIntact() {
+        upstreamBody = "m".repeat(4 * 1024);
+        get("/api/media/m2");
+        MockServerWebExchange hit = get("/api/media/m2");
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(upstreamBody, hit.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void memoryBudget_evictsEntries() {
+        upstreamBody = "y".repeat(8 * 1024);
+        for (int i = 0; i < 20; i++) {
+            get("/api/media/item-" + i);
+        }
+        assertTrue(responseCache.size() < 20);
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.johneliud.api_gateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseHeadersFilterTest {
+
+    private static final String ORIGIN = "http://localhost:4200";
+
+    private final ResponseHeadersFilter filter =
+            new ResponseHeadersFilter(ORIGIN + "/, https://shop.example.com", Duration.ofHours(2));
+
+    private final AtomicInteger chainCalls = new AtomicInteger();
+
+    // Stands in for a route that compressed its response
+    private final WebFilterChain chain = exchange -> {
+        chainCalls.incrementAndGet();
+        exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return exchange.getResponse().setComplete();
+    };
+
+    private MockServerWebExchange run(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter.filter(exchange, chain).block(Duration.ofSeconds(1));
+        return exchange;
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> preflight(String origin, HttpMethod method) {
+        return MockServerHttpRequest.options("/api/products")
+                .header(HttpHeaders.ORIGIN, origin)
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, method.name())
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "authorization,content-type");
+    }
+
+    @Test
+    void preflight_isAnsweredWithoutTheRouteChain() {
+        MockServerWebExchange exchange = run(preflight(ORIGIN, HttpMethod.POST));
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+
+        assertEquals(0, chainCalls.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals(ORIGIN, headers.getAccessControlAllowOrigin());
+        assertTrue(headers.getAccessControlAllowCredentials());
+        assertTrue(headers.getAccessControlAllowMethods().contains(HttpMethod.POST));
+        assertEquals(List.of("authorization", "content-type"), headers.getAccessControlAllowHeaders());
+        assertEquals(7200, headers.getAccessControlMaxAge());
+        assertEquals("nosniff", headers.getFirst("X-Content-Type-Options"));
+    }
+
+    @Test
+    void preflight_fromUnknownOriginOrForDisallowedMethod_isForbidden() {
+        MockServerWebExchange unknown = run(preflight("https://evil.example.com", HttpMethod.GET));
+        MockServerWebExchange patch = run(preflight(ORIGIN, HttpMethod.PATCH));
+
+        assertEquals(0, chainCalls.get());
+        for (MockServerWebExchange exchange : List.of(unknown, patch)) {
+            assertEquals(HttpStatus.FORBIDDEN, exchange.getResponse().getStatusCode());
+            assertNull(exchange.getResponse().getHeaders().getAccessControlAllowOrigin());
+            assertTrue(exchange.getResponse().getBodyAsString().block().contains("\"code\":\"origin_not_allowed\""));
+        }
+    }
+
+    @Test
+    void crossOriginRequest_getsCorsAndSecurityHeaders_andKeepsVary() {
+        MockServerWebExchange exchange = run(MockServerHttpRequest.get("/api/products")
+                .header(HttpHeaders.ORIGIN, "https://shop.example.com"));
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+
+        assertEquals(1, chainCalls.get());
+        assertEquals("https://shop.example.com", headers.getAccessControlAllowOrigin());
+        assertEquals(List.of(HttpHeaders.AUTHORIZATION), headers.getAccessControlExposeHeaders());
+        assertNull(headers.getFirst(HttpHeaders.ACCESS_CONTROL_MAX_AGE));
+        assertEquals("DENY", headers.getFirst("X-Frame-Options"));
+        assertTrue(headers.getVary().containsAll(List.of(HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ORIGIN)));
+    }
+
+    @Test
+    void requestWithoutOrigin_getsSecurityHeadersOnly() {
+        MockServerWebExchange exchange = run(MockServerHttpRequest.get("/api/products"));
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+
+        assertEquals(1, chainCalls.get());
+        assertEquals("nosniff", headers.getFirst("X-Content-Type-Options"));
+        assertEquals("DENY", headers.getFirst("X-Frame-Options"));
+        assertEquals("1; mode=block", headers.getFirst("X-XSS-Protection"));
+        assertEquals("default-src 'self'", headers.getFirst("Content-Security-Policy"));
+        assertNull(headers.getAccessControlAllowOrigin());
+    }
+
+    @Test
+    void crossOriginRequest_fromUnknownOrigin_isForbidden() {
+        MockServerWebExchange exchange = run(MockServerHttpRequest.get("/api/products")
+                .header(HttpHeaders.ORIGIN, "https://evil.example.com"));
+
+        assertEquals(0, chainCalls.get());
+        assertEquals(HttpStatus.FORBIDDEN, exchange.getResponse().getStatusCode());
+    }
+}
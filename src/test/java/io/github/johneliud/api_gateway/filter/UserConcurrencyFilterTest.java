@@ -0,0 +1,87 @@
+package io.github.johneliud.api_gateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserConcurrencyFilterTest {
+
+    // Each forwarded request stays in flight until its sink is completed
+    private final List<Sinks.Empty<Void>> inFlight = new CopyOnWriteArrayList<>();
+    private final GatewayFilterChain upstream = exchange -> {
+        Sinks.Empty<Void> response = Sinks.empty();
+        inFlight.add(response);
+        return response.asMono();
+    };
+
+    private SimpleMeterRegistry meterRegistry;
+    private GatewayFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new UserConcurrencyFilter(1, 1, Duration.ofMillis(200), meterRegistry)
+                .apply(new UserConcurrencyFilter.Config().setService("order"));
+    }
+
+    private static MockServerWebExchange exchange(String userId) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/orders");
+        if (userId != null) {
+            request.header(UserConcurrencyFilter.USER_ID_HEADER, userId);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    @Test
+    void userAtTheCap_queuesThenIsRejected() {
+        Disposable first = filter.filter(exchange("u1"), upstream).subscribe();
+        MockServerWebExchange queued = exchange("u1");
+        Mono<Void> second = filter.filter(queued, upstream).cache();
+        second.subscribe();
+        MockServerWebExchange rejected = exchange("u1");
+        filter.filter(rejected, upstream).block(Duration.ofSeconds(1));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(rejected.getResponse().getBodyAsString().block().contains("\"code\":\"too_many_in_flight\""));
+        assertEquals(1, inFlight.size());
+
+        // Finishing the first request hands its permit to the queued one
+        inFlight.getFirst().tryEmitEmpty();
+        assertEquals(2, inFlight.size());
+        inFlight.get(1).tryEmitEmpty();
+        second.block(Duration.ofSeconds(1));
+
+        assertNull(queued.getResponse().getStatusCode());
+        assertTrue(first.isDisposed());
+        assertEquals(1, meterRegistry.get("gateway.requests.rejected").tag("filter", "user-concurrency")
+                .counter().count());
+        assertEquals(2, meterRegistry.get("gateway.user.concurrency.queued").counter().count());
+        assertEquals(0, meterRegistry.get("gateway.user.concurrency.principals").gauge().value());
+    }
+
+    @Test
+    void otherUsers_andAnonymousRequests_areNotHeldBack() {
+        filter.filter(exchange("u1"), upstream).subscribe();
+        filter.filter(exchange("u2"), upstream).subscribe();
+        filter.filter(exchange(null), upstream).subscribe();
+        filter.filter(exchange(null), upstream).subscribe();
+
+        assertEquals(4, inFlight.size());
+    }
+}
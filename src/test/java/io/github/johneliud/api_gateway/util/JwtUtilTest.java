@@ -5,7 +5,6 @@ import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
@@ -16,13 +15,13 @@ import static org.junit.jupiter.api.Assertions.*;
 class JwtUtilTest {
 
     private static final String TEST_SECRET = "NqnGzaDEIZhGXWnbnWDHViZyKhinshBQ";
+    private static final String ROTATED_SECRET = "cXBmZ3hwcmR2b3N0ZWtqbXh3YXpuYmtl";
 
     private JwtUtil jwtUtil;
 
     @BeforeEach
     void setUp() {
-        jwtUtil = new JwtUtil();
-        ReflectionTestUtils.setField(jwtUtil, "secret", TEST_SECRET);
+        jwtUtil = new JwtUtil(TEST_SECRET, "");
     }
 
     private String buildToken(String userId, String role, Date expiry) {
@@ -67,4 +66,37 @@ class JwtUtilTest {
     void validateToken_invalidToken_throwsException() {
         assertThrows(Exception.class, () -> jwtUtil.validateToken("not.a.valid.token"));
     }
+
+    private String buildTokenWithKeyId(String keyId, String secret) {
+        SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        return Jwts.builder()
+                .header().keyId(keyId).and()
+                .subject("user123")
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(key)
+                .compact();
+    }
+
+    @Test
+    void validateToken_configuredKeyId_usesMatchingKey() {
+        jwtUtil = new JwtUtil(TEST_SECRET, "k1:" + ROTATED_SECRET);
+        Claims claims = jwtUtil.validateToken(buildTokenWithKeyId("k1", ROTATED_SECRET));
+        assertEquals("user123", claims.getSubject());
+    }
+
+    @Test
+    void validateToken_unknownKeyId_throwsException() {
+        String token = buildTokenWithKeyId("k2", ROTATED_SECRET);
+        assertThrows(Exception.class, () -> jwtUtil.validateToken(token));
+    }
+
+    @Test
+    void putKey_thenRemoveKey_rotatesWithoutRebuild() {
+        String token = buildTokenWithKeyId("k2", ROTATED_SECRET);
+        jwtUtil.putKey("k2", ROTATED_SECRET);
+        assertEquals("user123", jwtUtil.validateToken(token).getSubject());
+
+        jwtUtil.removeKey("k2");
+        assertThrows(Exception.class, () -> jwtUtil.validateToken(token));
+    }
 }
@@ -0,0 +1,55 @@
+package io.github.johneliud.api_gateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevocationIndexTest {
+
+    @Test
+    void revokedTokens_areAlwaysFound_andLiveOnesAlmostNever() {
+        List<String> revoked = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            revoked.add(UUID.randomUUID().toString());
+        }
+        RevocationIndex index = new RevocationIndex(revoked, Map.of());
+
+        assertEquals(revoked.size(), index.tokens());
+        for (String tokenId : revoked) {
+            assertTrue(index.containsToken(tokenId), tokenId);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 200_000; i++) {
+            if (index.containsToken(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        // The exact table behind the filter removes the filter's ~1% false positives
+        assertEquals(0, falsePositives);
+    }
+
+    @Test
+    void userCutoff_refusesTokensIssuedUpToIt() {
+        RevocationIndex index = new RevocationIndex(List.of(), Map.of("alice", 1_000L));
+
+        assertTrue(index.isRevoked(null, "alice", 999));
+        assertTrue(index.isRevoked(null, "alice", 1_000));
+        assertFalse(index.isRevoked(null, "alice", 1_001));
+        assertFalse(index.isRevoked(null, "bob", 0));
+        assertTrue(index.isRevoked(null, "alice", Long.MIN_VALUE), "a token without iat predates any cutoff");
+    }
+
+    @Test
+    void duplicatesAndEmptyIndex() {
+        RevocationIndex index = new RevocationIndex(List.of("a", "a", "b"), Map.of());
+
+        assertEquals(2, index.tokens());
+        assertFalse(RevocationIndex.EMPTY.isRevoked("a", "alice", 0));
+        assertFalse(RevocationIndex.EMPTY.containsToken("a"));
+    }
+}
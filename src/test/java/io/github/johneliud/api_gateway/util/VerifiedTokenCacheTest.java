@@ -0,0 +1,100 @@
+package io.github.johneliud.api_gateway.util;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private static final String TEST_SECRET = "NqnGzaDEIZhGXWnbnWDHViZyKhinshBQ";
+
+    private SimpleMeterRegistry meterRegistry;
+    private VerifiedTokenCache tokenCache;
+
+    @BeforeEach
+    void setUp() {
+        JwtUtil jwtUtil = new JwtUtil(TEST_SECRET, "");
+        meterRegistry = new SimpleMeterRegistry();
+        tokenCache = new VerifiedTokenCache(jwtUtil, meterRegistry, 2, 300);
+    }
+
+    private String buildToken(String userId, String role, Date expiry) {
+        SecretKey key = Keys.hmacShaKeyFor(TEST_SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.builder()
+                .subject(userId)
+                .claim("role", role)
+                .expiration(expiry)
+                .signWith(key)
+                .compact();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "jwt.verified-tokens")
+                .tag("result", result)
+                .functionCounter().count();
+    }
+
+    @Test
+    void verify_validToken_returnsUserContext() {
+        String token = buildToken("user123", "SELLER", new Date(System.currentTimeMillis() + 3_600_000));
+        VerifiedToken verified = tokenCache.verify(token);
+        assertEquals("user123", verified.userId());
+        assertEquals("SELLER", verified.role());
+    }
+
+    @Test
+    void verify_keepsTokenIdAndIssueTime() {
+        Date issuedAt = new Date((System.currentTimeMillis() / 1000) * 1000);
+        String token = Jwts.builder()
+                .subject("user123")
+                .id("token-1")
+                .issuedAt(issuedAt)
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(TEST_SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        VerifiedToken verified = tokenCache.verify(token);
+        assertEquals("token-1", verified.tokenId());
+        assertEquals(issuedAt.getTime(), verified.issuedAtMillis());
+    }
+
+    @Test
+    void verify_repeatedToken_servedFromCache() {
+        String token = buildToken("user123", "CLIENT", new Date(System.currentTimeMillis() + 3_600_000));
+        tokenCache.verify(token);
+        tokenCache.verify(token);
+        tokenCache.verify(token);
+        assertEquals(1, gets("miss"));
+        assertEquals(2, gets("hit"));
+    }
+
+    @Test
+    void verify_invalidToken_throwsAndIsNotCached() {
+        assertThrows(Exception.class, () -> tokenCache.verify("not.a.valid.token"));
+        assertThrows(Exception.class, () -> tokenCache.verify("not.a.valid.token"));
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    void verify_expiredToken_throwsException() {
+        String token = buildToken("user123", "CLIENT", new Date(System.currentTimeMillis() - 1_000));
+        assertThrows(Exception.class, () -> tokenCache.verify(token));
+    }
+
+    @Test
+    void verify_beyondMaxSize_evictsEntries() {
+        Date expiry = new Date(System.currentTimeMillis() + 3_600_000);
+        for (int i = 0; i < 10; i++) {
+            tokenCache.verify(buildToken("user" + i, "CLIENT", expiry));
+        }
+        assertTrue(tokenCache.size() <= 2);
+    }
+}